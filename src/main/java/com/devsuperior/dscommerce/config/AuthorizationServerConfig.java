@@ -1,11 +1,9 @@
 package com.devsuperior.dscommerce.config;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,15 +13,18 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
 import org.springframework.security.oauth2.core.OAuth2Token;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationConsentService;
-import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
 import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
@@ -40,6 +41,7 @@ import org.springframework.security.oauth2.server.authorization.token.Delegating
 import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
 import org.springframework.security.oauth2.server.authorization.token.JwtGenerator;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2AccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2RefreshTokenGenerator;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
 import org.springframework.security.web.SecurityFilterChain;
@@ -47,10 +49,13 @@ import org.springframework.security.web.SecurityFilterChain;
 import com.devsuperior.dscommerce.config.customgrant.CustomPasswordAuthenticationConverter;
 import com.devsuperior.dscommerce.config.customgrant.CustomPasswordAuthenticationProvider;
 import com.devsuperior.dscommerce.config.customgrant.CustomUserAuthorities;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.proc.SecurityContext;
+import com.devsuperior.dscommerce.config.customgrant.PasswordVerificationPool;
+import com.devsuperior.dscommerce.config.customgrant.TokenErrorResponseHandler;
+import com.devsuperior.dscommerce.repositories.AuthorizationRepository;
+import com.devsuperior.dscommerce.services.JpaOAuth2AuthorizationService;
+import com.devsuperior.dscommerce.services.UserService;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Configuration
 public class AuthorizationServerConfig {
@@ -64,8 +69,62 @@ public class AuthorizationServerConfig {
 	@Value("${security.jwt.duration}")
 	private Integer jwtDurationSeconds;
 
+	@Value("${security.jwt.refresh-duration}")
+	private Integer jwtRefreshDurationSeconds;
+
+	@Value("${security.jwt.claims-format}")
+	private String jwtClaimsFormat;
+
+	@Value("${security.jwt.compact.roles}")
+	private List<String> jwtCompactRoles;
+
+	@Value("${security.jwt.decoder-cache.max-size}")
+	private Long jwtDecoderCacheMaxSize;
+
+	@Value("${security.jwk.keystore.location}")
+	private String jwkKeystoreLocation;
+
+	@Value("${security.jwk.keystore.password}")
+	private String jwkKeystorePassword;
+
+	@Value("${security.jwk.keystore.type}")
+	private String jwkKeystoreType;
+
+	@Value("${security.jwk.pem-locations}")
+	private List<String> jwkPemLocations;
+
+	@Value("${security.jwk.signing-kid}")
+	private String jwkSigningKid;
+
+	@Value("${security.jwk.signing-kid-location}")
+	private String jwkSigningKidLocation;
+
+	@Value("${security.jwk.reload-interval}")
+	private Duration jwkReloadInterval;
+
+	@Value("${security.jwk.algorithm}")
+	private String jwkAlgorithm;
+
+	@Value("${security.password-encoder.algorithm}")
+	private String passwordEncoderAlgorithm;
+
+	@Value("${security.password-encoder.bcrypt-strength}")
+	private Integer passwordBcryptStrength;
+
+	@Value("${security.password-verification.threads}")
+	private Integer passwordVerificationThreads;
+
+	@Value("${security.password-verification.queue-capacity}")
+	private Integer passwordVerificationQueueCapacity;
+
 	@Autowired
-	private UserDetailsService userDetailsService;
+	private UserService userService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private AuthorizationRepository authorizationRepository;
 
 	@Bean
 	@Order(2)
@@ -76,7 +135,8 @@ public class AuthorizationServerConfig {
 		http.getConfigurer(OAuth2AuthorizationServerConfigurer.class)
 			.tokenEndpoint(tokenEndpoint -> tokenEndpoint
 				.accessTokenRequestConverter(new CustomPasswordAuthenticationConverter())
-				.authenticationProvider(new CustomPasswordAuthenticationProvider(authorizationService(), tokenGenerator(), userDetailsService, passwordEncoder())));
+				.authenticationProvider(passwordAuthenticationProvider())
+				.errorResponseHandler(new TokenErrorResponseHandler()));
 
 		http.oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer.jwt(Customizer.withDefaults()));
 		// @formatter:on
@@ -84,9 +144,17 @@ public class AuthorizationServerConfig {
 		return http.build();
 	}
 
+	private CustomPasswordAuthenticationProvider passwordAuthenticationProvider() {
+		CustomPasswordAuthenticationProvider provider = new CustomPasswordAuthenticationProvider(authorizationService(),
+				tokenGenerator(), userService, passwordEncoder(), passwordVerificationPool(), meterRegistry);
+		provider.setUserDetailsPasswordService(userService);
+		return provider;
+	}
+
+	//Persistido no banco: sobrevive a reinícios e as autorizações expiradas são removidas pelo AuthorizationPurgeJob
 	@Bean
 	public OAuth2AuthorizationService authorizationService() {
-		return new InMemoryOAuth2AuthorizationService();
+		return new JpaOAuth2AuthorizationService(authorizationRepository, registeredClientRepository());
 	}
 
 	@Bean
@@ -94,9 +162,22 @@ public class AuthorizationServerConfig {
 		return new InMemoryOAuth2AuthorizationConsentService();
 	}
 
+	//Os hashes levam o prefixo do algoritmo ({bcrypt}, {pbkdf2}); os antigos, sem prefixo, são lidos como BCrypt
+	//e regravados no próximo login, assim como os de custo ou algoritmo diferentes do configurado
 	@Bean
 	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+		BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(passwordBcryptStrength);
+		Map<String, PasswordEncoder> encoders = new HashMap<>();
+		encoders.put("bcrypt", bcrypt);
+		encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+		DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(passwordEncoderAlgorithm, encoders);
+		passwordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+		return passwordEncoder;
+	}
+
+	@Bean
+	public PasswordVerificationPool passwordVerificationPool() {
+		return new PasswordVerificationPool(passwordVerificationThreads, passwordVerificationQueueCapacity, meterRegistry);
 	}
 
 	@Bean
@@ -109,6 +190,7 @@ public class AuthorizationServerConfig {
 			.scope("read")
 			.scope("write")
 			.authorizationGrantType(new AuthorizationGrantType("password"))
+			.authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
 			.tokenSettings(tokenSettings())
 			.clientSettings(clientSettings())
 			.build();
@@ -123,6 +205,9 @@ public class AuthorizationServerConfig {
 		return TokenSettings.builder()
 			.accessTokenFormat(OAuth2TokenFormat.SELF_CONTAINED)
 			.accessTokenTimeToLive(Duration.ofSeconds(jwtDurationSeconds))
+			.refreshTokenTimeToLive(Duration.ofSeconds(jwtRefreshDurationSeconds))
+			//Cada refresh emite um refresh token novo e invalida o anterior
+			.reuseRefreshTokens(false)
 			.build();
 		// @formatter:on
 	}
@@ -139,11 +224,11 @@ public class AuthorizationServerConfig {
 
 	@Bean
 	public OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator() {
-		NimbusJwtEncoder jwtEncoder = new NimbusJwtEncoder(jwkSource());
-		JwtGenerator jwtGenerator = new JwtGenerator(jwtEncoder);
+		JwtGenerator jwtGenerator = new JwtGenerator(new KeyRingJwtEncoder(jwkSource()));
 		jwtGenerator.setJwtCustomizer(tokenCustomizer());
 		OAuth2AccessTokenGenerator accessTokenGenerator = new OAuth2AccessTokenGenerator();
-		return new DelegatingOAuth2TokenGenerator(jwtGenerator, accessTokenGenerator);
+		OAuth2RefreshTokenGenerator refreshTokenGenerator = new OAuth2RefreshTokenGenerator();
+		return new DelegatingOAuth2TokenGenerator(jwtGenerator, accessTokenGenerator, refreshTokenGenerator);
 	}
 
 	@Bean
@@ -151,45 +236,62 @@ public class AuthorizationServerConfig {
 		return context -> {
 			OAuth2ClientAuthenticationToken principal = context.getPrincipal();
 			CustomUserAuthorities user = (CustomUserAuthorities) principal.getDetails();
+			if (AuthorizationGrantType.REFRESH_TOKEN.equals(context.getAuthorizationGrantType())) {
+				user = reloadUser(user);
+			}
 			List<String> authorities = user.getAuthorities().stream().map(x -> x.getAuthority()).toList();
 			if (context.getTokenType().getValue().equals("access_token")) {
-				// @formatter:off
-				context.getClaims()
-					.claim("authorities", authorities)
-					.claim("username", user.getUsername());
-				// @formatter:on
+				context.getClaims().claim("username", user.getUsername());
+				Long roles = "compact".equals(jwtClaimsFormat) ? compactRoleClaims().encode(authorities) : null;
+				if (roles != null) {
+					context.getClaims().claim(CompactRoleClaims.CLAIM, roles);
+					//Redundantes no grant password: aud repete o sub (client id) e nbf repete o iat
+					context.getClaims().claims(claims -> {
+						claims.remove("aud");
+						claims.remove("nbf");
+					});
+				}
+				else {
+					context.getClaims().claim("authorities", authorities);
+				}
+				//Permite autorizar acessos "próprio usuário ou admin" sem consultar o banco
+				if (user.getUserId() != null) {
+					context.getClaims().claim("user_id", user.getUserId());
+				}
 			}
 		};
 	}
 
-	@Bean
-	public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource) {
-		return OAuth2AuthorizationServerConfiguration.jwtDecoder(jwkSource);
+	//Os dados gravados na autorização são os do login: no refresh os perfis são relidos (cache user-details, sem senha nem BCrypt)
+	//para que papéis alterados valham no próximo access token e um usuário removido não consiga renovar.
+	//Alterações feitas direto no banco só aparecem quando a entrada expira (cache.user-details.ttl).
+	private CustomUserAuthorities reloadUser(CustomUserAuthorities user) {
+		UserDetails userDetails;
+		try {
+			userDetails = userService.loadUserAuthorities(user.getUsername());
+		} catch (UsernameNotFoundException e) {
+			throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_GRANT);
+		}
+		return new CustomUserAuthorities(user.getUserId(), user.getUsername(), userDetails.getAuthorities());
 	}
 
 	@Bean
-	public JWKSource<SecurityContext> jwkSource() {
-		RSAKey rsaKey = generateRsa();
-		JWKSet jwkSet = new JWKSet(rsaKey);
-		return (jwkSelector, securityContext) -> jwkSelector.select(jwkSet);
+	public CompactRoleClaims compactRoleClaims() {
+		return new CompactRoleClaims(jwtCompactRoles);
 	}
 
-	private static RSAKey generateRsa() {
-		KeyPair keyPair = generateRsaKey();
-		RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
-		RSAPrivateKey privateKey = (RSAPrivateKey) keyPair.getPrivate();
-		return new RSAKey.Builder(publicKey).privateKey(privateKey).keyID(UUID.randomUUID().toString()).build();
+	@Bean
+	public JwtDecoder jwtDecoder() {
+		JwkKeyRing keyRing = jwkSource();
+		CachingJwtDecoder decoder = new CachingJwtDecoder(keyRing.jwtDecoder(),
+				jwtDecoderCacheMaxSize, meterRegistry);
+		keyRing.addRemovalListener(decoder::invalidateAll);
+		return decoder;
 	}
 
-	private static KeyPair generateRsaKey() {
-		KeyPair keyPair;
-		try {
-			KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-			keyPairGenerator.initialize(2048);
-			keyPair = keyPairGenerator.generateKeyPair();
-		} catch (Exception ex) {
-			throw new IllegalStateException(ex);
-		}
-		return keyPair;
+	@Bean
+	public JwkKeyRing jwkSource() {
+		return new JwkKeyRing(jwkKeystoreLocation, jwkKeystorePassword, jwkKeystoreType, jwkPemLocations, jwkSigningKid,
+				jwkSigningKidLocation, jwkReloadInterval, jwkAlgorithm);
 	}
 }
@@ -0,0 +1,77 @@
+package com.devsuperior.dscommerce.config;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+//O cache fica por fora da transação: o evict só ocorre depois do commit
+@Configuration
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE, proxyTargetClass = true)
+public class CacheConfig {
+
+	public static final String PRODUCTS = "products";
+	public static final String CATEGORIES = "categories";
+	public static final String USERS = "users";
+	public static final String USER_DETAILS = "userDetails";
+
+	@Value("${cache.products.max-size}")
+	private Long productsMaxSize;
+
+	@Value("${cache.products.ttl}")
+	private Integer productsTtlSeconds;
+
+	@Value("${cache.categories.ttl}")
+	private Integer categoriesTtlSeconds;
+
+	@Value("${cache.users.max-size}")
+	private Long usersMaxSize;
+
+	@Value("${cache.users.ttl}")
+	private Integer usersTtlSeconds;
+
+	@Value("${cache.user-details.max-size}")
+	private Long userDetailsMaxSize;
+
+	@Value("${cache.user-details.ttl}")
+	private Integer userDetailsTtlSeconds;
+
+	@Bean
+	public CacheManager cacheManager() {
+		CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+		cacheManager.setCacheNames(List.of());
+		// @formatter:off
+		cacheManager.registerCustomCache(PRODUCTS, Caffeine.newBuilder()
+			.maximumSize(productsMaxSize)
+			.expireAfterWrite(Duration.ofSeconds(productsTtlSeconds))
+			.recordStats()
+			.build());
+		//A lista de categorias é uma única entrada; o TTL limita por quanto tempo uma alteração feita fora da aplicação fica invisível
+		cacheManager.registerCustomCache(CATEGORIES, Caffeine.newBuilder()
+			.maximumSize(1)
+			.expireAfterWrite(Duration.ofSeconds(categoriesTtlSeconds))
+			.recordStats()
+			.build());
+		//TTL curto: limita por quanto tempo uma alteração de perfil não invalidada pode ficar visível
+		cacheManager.registerCustomCache(USERS, Caffeine.newBuilder()
+			.maximumSize(usersMaxSize)
+			.expireAfterWrite(Duration.ofSeconds(usersTtlSeconds))
+			.recordStats()
+			.build());
+		cacheManager.registerCustomCache(USER_DETAILS, Caffeine.newBuilder()
+			.maximumSize(userDetailsMaxSize)
+			.expireAfterWrite(Duration.ofSeconds(userDetailsTtlSeconds))
+			.recordStats()
+			.build());
+		// @formatter:on
+		return cacheManager;
+	}
+}
@@ -0,0 +1,82 @@
+package com.devsuperior.dscommerce.config;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.util.Assert;
+
+import com.devsuperior.dscommerce.util.TokenHash;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+//Guarda o Jwt já verificado, indexado pelo hash do token, para não repetir a verificação RSA a cada requisição.
+//Cada entrada vence junto com o exp do token; erros de decodificação nunca são guardados.
+public class CachingJwtDecoder implements JwtDecoder {
+
+	private final JwtDecoder delegate;
+	private final Cache<String, Jwt> cache;
+
+	public CachingJwtDecoder(JwtDecoder delegate, long maxSize, MeterRegistry meterRegistry) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		Assert.isTrue(maxSize > 0, "maxSize must be greater than zero");
+		this.delegate = delegate;
+		// @formatter:off
+		this.cache = Caffeine.newBuilder()
+			.maximumSize(maxSize)
+			.expireAfter(new UntilExpiresAt())
+			.recordStats()
+			.build();
+		// @formatter:on
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwtDecoder");
+	}
+
+	@Override
+	public Jwt decode(String token) throws JwtException {
+		String key = TokenHash.sha256(token);
+		Jwt jwt = cache.getIfPresent(key);
+		if (jwt != null) {
+			return jwt;
+		}
+		jwt = delegate.decode(token);
+		//Sem exp não há como limitar a vida da entrada, então o token não é guardado
+		if (jwt.getExpiresAt() != null && jwt.getExpiresAt().isAfter(Instant.now())) {
+			cache.put(key, jwt);
+		}
+		return jwt;
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	long estimatedSize() {
+		cache.cleanUp();
+		return cache.estimatedSize();
+	}
+
+	private static class UntilExpiresAt implements Expiry<String, Jwt> {
+
+		@Override
+		public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+			Duration remaining = Duration.between(Instant.now(), jwt.getExpiresAt());
+			return remaining.isNegative() ? 0L : remaining.toNanos();
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, jwt, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+}
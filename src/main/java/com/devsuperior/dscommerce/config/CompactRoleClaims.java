@@ -0,0 +1,56 @@
+package com.devsuperior.dscommerce.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.Assert;
+
+//Papéis do access token no formato compacto (security.jwt.claims-format=compact): um bitmask na claim "rl",
+//em que o bit i corresponde ao i-ésimo papel de security.jwt.compact.roles. A ordem da lista faz parte do
+//formato do token, por isso papéis novos só podem ser acrescentados no final.
+public class CompactRoleClaims {
+
+	public static final String CLAIM = "rl";
+
+	private final List<String> roles;
+	private final Map<Long, List<GrantedAuthority>> authorities = new ConcurrentHashMap<>();
+
+	public CompactRoleClaims(List<String> roles) {
+		Assert.isTrue(roles.size() < Long.SIZE, "at most 63 roles can be encoded");
+		Assert.isTrue(roles.stream().distinct().count() == roles.size(), "roles must be unique");
+		this.roles = List.copyOf(roles);
+	}
+
+	//Null quando algum papel não tem bit atribuído: o token deve manter a lista completa
+	public Long encode(Collection<String> authorities) {
+		long mask = 0L;
+		for (String authority : authorities) {
+			int bit = roles.indexOf(authority);
+			if (bit < 0) {
+				return null;
+			}
+			mask |= 1L << bit;
+		}
+		return mask;
+	}
+
+	//Poucas combinações distintas de papéis: a lista de cada bitmask é montada uma vez só
+	public List<GrantedAuthority> decode(long mask) {
+		return authorities.computeIfAbsent(mask, this::toAuthorities);
+	}
+
+	private List<GrantedAuthority> toAuthorities(long mask) {
+		List<GrantedAuthority> result = new ArrayList<>();
+		for (int bit = 0; bit < roles.size(); bit++) {
+			if ((mask & (1L << bit)) != 0) {
+				result.add(new SimpleGrantedAuthority(roles.get(bit)));
+			}
+		}
+		return List.copyOf(result);
+	}
+}
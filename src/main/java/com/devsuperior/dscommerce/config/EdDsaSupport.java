@@ -0,0 +1,90 @@
+package com.devsuperior.dscommerce.config;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
+
+//O DefaultJWTProcessor do Nimbus só entrega java.security.Key ao verificador e o OctetKeyPair (Ed25519)
+//não exporta para Key. A chave passa pela JCA (EdECPublicKey) e volta para o Ed25519Verifier.
+final class EdDsaSupport {
+
+	//Cabeçalho DER da SubjectPublicKeyInfo do Ed25519, seguido dos 32 bytes da chave pública
+	private static final byte[] X509_PREFIX = HexFormat.of().parseHex("302a300506032b6570032100");
+
+	private EdDsaSupport() {
+	}
+
+	static byte[] rawPublicKey(PublicKey publicKey) {
+		byte[] encoded = publicKey.getEncoded();
+		return Arrays.copyOfRange(encoded, X509_PREFIX.length, encoded.length);
+	}
+
+	static PublicKey toPublicKey(OctetKeyPair jwk) throws GeneralSecurityException {
+		byte[] raw = jwk.getX().decode();
+		byte[] encoded = Arrays.copyOf(X509_PREFIX, X509_PREFIX.length + raw.length);
+		System.arraycopy(raw, 0, encoded, X509_PREFIX.length, raw.length);
+		return KeyFactory.getInstance("Ed25519").generatePublic(new X509EncodedKeySpec(encoded));
+	}
+
+	static class KeySelector extends JWSVerificationKeySelector<SecurityContext> {
+
+		KeySelector(Set<JWSAlgorithm> algorithms, JWKSource<SecurityContext> jwkSource) {
+			super(algorithms, jwkSource);
+		}
+
+		@Override
+		public List<Key> selectJWSKeys(JWSHeader header, SecurityContext context) throws KeySourceException {
+			if (!JWSAlgorithm.Family.ED.contains(header.getAlgorithm())) {
+				return super.selectJWSKeys(header, context);
+			}
+			List<Key> keys = new ArrayList<>();
+			for (JWK jwk : getJWKSource().get(new JWKSelector(JWKMatcher.forJWSHeader(header)), context)) {
+				if (jwk instanceof OctetKeyPair okp && Curve.Ed25519.equals(okp.getCurve())) {
+					try {
+						keys.add(toPublicKey(okp));
+					}
+					catch (GeneralSecurityException e) {
+						throw new KeySourceException("Chave Ed25519 inválida: " + jwk.getKeyID(), e);
+					}
+				}
+			}
+			return keys;
+		}
+	}
+
+	static class VerifierFactory extends DefaultJWSVerifierFactory {
+
+		@Override
+		public JWSVerifier createJWSVerifier(JWSHeader header, Key key) throws JOSEException {
+			if (key instanceof EdECPublicKey publicKey) {
+				return new Ed25519Verifier(new OctetKeyPair.Builder(Curve.Ed25519, Base64URL.encode(rawPublicKey(publicKey))).build());
+			}
+			return super.createJWSVerifier(header, key);
+		}
+	}
+}
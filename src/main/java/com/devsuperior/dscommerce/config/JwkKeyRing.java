@@ -0,0 +1,370 @@
+package com.devsuperior.dscommerce.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPrivateKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.util.StringUtils;
+
+import com.google.crypto.tink.subtle.Ed25519Sign;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.CurveBasedJWK;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+
+//Conjunto de chaves JWK lido de um keystore (kid = alias) e/ou de arquivos PEM (kid = nome do arquivo).
+//Todas as chaves validam tokens; só uma assina: a do kid lido de security.jwk.signing-kid-location (relido
+//a cada reload), senão a de security.jwk.signing-kid. Sem kid explícito, a chave que já assina continua
+//assinando enquanto existir; só na partida ou quando ela some é escolhida a de maior kid entre as que têm
+//chave privada (ex.: 2026-10 vence 2026-09), ignorando arquivos alterados há menos de um intervalo de reload,
+//que os outros nós ainda podem não ter lido.
+//Rotação: publicar a chave nova em todos os nós, esperar um intervalo de reload, gravar o kid novo no arquivo
+//de security.jwk.signing-kid-location e remover a antiga depois que os tokens assinados com ela expirarem.
+//O algoritmo de assinatura (security.jwk.algorithm: RS256, ES256, EdDSA...) define quais chaves podem assinar;
+//a validação aceita chaves de qualquer tipo do conjunto, o que permite migrar de RSA para EC/Ed25519 por rotação.
+//Sem keystore nem PEM configurados, gera uma chave efêmera do algoritmo (apenas para desenvolvimento).
+public class JwkKeyRing implements JWKSource<SecurityContext> {
+
+	private static final Logger logger = LoggerFactory.getLogger(JwkKeyRing.class);
+	private static final List<String> KEY_ALGORITHMS = List.of("RSA", "EC", "Ed25519");
+	private static final Pattern PEM_BLOCK = Pattern.compile("-----BEGIN ([A-Z ]+)-----([^-]+)-----END \\1-----");
+
+	private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+	private final String keystoreLocation;
+	private final String keystorePassword;
+	private final String keystoreType;
+	private final List<String> pemLocations;
+	private final String signingKid;
+	private final String signingKidLocation;
+	private final Duration promotionDelay;
+	private final JWSAlgorithm algorithm;
+
+	private final List<Runnable> removalListeners = new CopyOnWriteArrayList<>();
+
+	private volatile JWKSet verificationKeys;
+	private volatile JWKSet signingKeys;
+
+	public JwkKeyRing(String keystoreLocation, String keystorePassword, String keystoreType,
+			List<String> pemLocations, String signingKid, String algorithm) {
+		this(keystoreLocation, keystorePassword, keystoreType, pemLocations, signingKid, "", Duration.ZERO, algorithm);
+	}
+
+	//promotionDelay: idade mínima do arquivo para a chave ser escolhida automaticamente (o intervalo de reload)
+	public JwkKeyRing(String keystoreLocation, String keystorePassword, String keystoreType,
+			List<String> pemLocations, String signingKid, String signingKidLocation, Duration promotionDelay,
+			String algorithm) {
+		this.keystoreLocation = keystoreLocation;
+		this.keystorePassword = keystorePassword;
+		this.keystoreType = keystoreType;
+		this.pemLocations = pemLocations.stream().filter(StringUtils::hasText).map(String::trim).toList();
+		this.signingKid = signingKid;
+		this.signingKidLocation = signingKidLocation;
+		this.promotionDelay = promotionDelay;
+		this.algorithm = JWSAlgorithm.parse(algorithm);
+		if (!JWSAlgorithm.Family.SIGNATURE.contains(this.algorithm)) {
+			throw new IllegalStateException("Algoritmo de assinatura não suportado: " + algorithm);
+		}
+		if (isConfigured()) {
+			load();
+		}
+		else {
+			JWK ephemeral = generate(this.algorithm);
+			verificationKeys = new JWKSet(ephemeral);
+			signingKeys = new JWKSet(ephemeral);
+		}
+	}
+
+	@Override
+	public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+		return jwkSelector.select(verificationKeys);
+	}
+
+	public JWK getSigningKey() {
+		return signingKeys.getKeys().get(0);
+	}
+
+	public String getSigningKid() {
+		return getSigningKey().getKeyID();
+	}
+
+	public JWSAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	//Equivalente ao OAuth2AuthorizationServerConfiguration.jwtDecoder, que não aceita EdDSA
+	public JwtDecoder jwtDecoder() {
+		Set<JWSAlgorithm> algorithms = new HashSet<>(JWSAlgorithm.Family.SIGNATURE);
+		DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+		jwtProcessor.setJWSKeySelector(new EdDsaSupport.KeySelector(algorithms, this));
+		jwtProcessor.setJWSVerifierFactory(new EdDsaSupport.VerifierFactory());
+		//As claims são validadas pelo NimbusJwtDecoder (exp/nbf)
+		jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+		});
+		return new NimbusJwtDecoder(jwtProcessor);
+	}
+
+	public List<String> getKids() {
+		return verificationKeys.getKeys().stream().map(JWK::getKeyID).toList();
+	}
+
+	//Avisado quando um reload remove algum kid (ex.: para descartar tokens já verificados com a chave retirada)
+	public void addRemovalListener(Runnable listener) {
+		removalListeners.add(listener);
+	}
+
+	//Em caso de erro mantém as chaves atuais: um arquivo mal copiado não derruba a emissão de tokens
+	@Scheduled(fixedDelayString = "${security.jwk.reload-interval}", initialDelayString = "${security.jwk.reload-interval}")
+	public void reload() {
+		if (!isConfigured()) {
+			return;
+		}
+		try {
+			load();
+		}
+		catch (RuntimeException e) {
+			logger.warn("Falha ao recarregar as chaves JWK, mantendo as atuais: {}", e.getMessage());
+		}
+	}
+
+	private boolean isConfigured() {
+		return StringUtils.hasText(keystoreLocation) || !pemLocations.isEmpty();
+	}
+
+	private void load() {
+		List<JWK> keys = new ArrayList<>();
+		Map<String, Long> lastModified = new HashMap<>();
+		if (StringUtils.hasText(keystoreLocation)) {
+			long modified = lastModified(keystoreLocation);
+			for (JWK jwk : loadKeystore()) {
+				keys.add(jwk);
+				lastModified.put(jwk.getKeyID(), modified);
+			}
+		}
+		for (String location : pemLocations) {
+			JWK jwk = loadPem(location);
+			keys.add(jwk);
+			lastModified.put(jwk.getKeyID(), lastModified(location));
+		}
+
+		JWK signing = selectSigningKey(keys, lastModified);
+		JWKSet previous = verificationKeys;
+		if (signingKeys != null && !signing.getKeyID().equals(getSigningKid())) {
+			logger.info("Chave de assinatura JWT trocada de {} para {}", getSigningKid(), signing.getKeyID());
+		}
+		verificationKeys = new JWKSet(keys);
+		signingKeys = new JWKSet(signing);
+		if (previous != null && !getKids().containsAll(previous.getKeys().stream().map(JWK::getKeyID).toList())) {
+			removalListeners.forEach(Runnable::run);
+		}
+	}
+
+	private JWK selectSigningKey(List<JWK> keys, Map<String, Long> lastModified) {
+		String kid = requestedSigningKid();
+		if (StringUtils.hasText(kid)) {
+			return keys.stream().filter(x -> kid.equals(x.getKeyID()) && canSign(x)).findFirst()
+					.orElseThrow(() -> new IllegalStateException("Chave de assinatura não encontrada: " + kid));
+		}
+		if (signingKeys != null) {
+			String current = getSigningKid();
+			for (JWK jwk : keys) {
+				if (current.equals(jwk.getKeyID()) && canSign(jwk)) {
+					return jwk;
+				}
+			}
+		}
+		List<JWK> candidates = keys.stream().filter(this::canSign).toList();
+		if (candidates.isEmpty()) {
+			throw new IllegalStateException("Nenhuma chave privada " + algorithm + " para assinar tokens");
+		}
+		//Se nenhuma tem a idade mínima (primeira implantação), assina com a maior mesmo assim
+		long cutoff = System.currentTimeMillis() - promotionDelay.toMillis();
+		return candidates.stream().filter(x -> lastModified.get(x.getKeyID()) <= cutoff).max(Comparator.comparing(JWK::getKeyID))
+				.orElseGet(() -> candidates.stream().max(Comparator.comparing(JWK::getKeyID)).orElseThrow());
+	}
+
+	//Arquivo ausente ou vazio volta para security.jwk.signing-kid
+	private String requestedSigningKid() {
+		if (StringUtils.hasText(signingKidLocation)) {
+			Resource resource = resourceLoader.getResource(signingKidLocation);
+			if (resource.exists()) {
+				try {
+					String kid = resource.getContentAsString(StandardCharsets.UTF_8).trim();
+					if (!kid.isEmpty()) {
+						return kid;
+					}
+				}
+				catch (IOException e) {
+					throw new IllegalStateException("Não foi possível ler " + signingKidLocation, e);
+				}
+			}
+		}
+		return signingKid;
+	}
+
+	//Sem data conhecida (ex.: dentro de um jar) a chave conta como antiga
+	private long lastModified(String location) {
+		try {
+			return resourceLoader.getResource(location).lastModified();
+		}
+		catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private List<JWK> loadKeystore() {
+		try (InputStream in = resourceLoader.getResource(keystoreLocation).getInputStream()) {
+			char[] password = keystorePassword == null ? new char[0] : keystorePassword.toCharArray();
+			KeyStore keyStore = KeyStore.getInstance(keystoreType);
+			keyStore.load(in, password);
+			return JWKSet.load(keyStore, name -> password).getKeys();
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Não foi possível carregar o keystore " + keystoreLocation, e);
+		}
+	}
+
+	//Chave privada do algoritmo configurado e, para EC, da curva correspondente
+	private boolean canSign(JWK jwk) {
+		if (!jwk.isPrivate() || !KeyType.forAlgorithm(algorithm).equals(jwk.getKeyType())) {
+			return false;
+		}
+		return !(jwk instanceof CurveBasedJWK curveBased) || Curve.forJWSAlgorithm(algorithm).contains(curveBased.getCurve());
+	}
+
+	//Aceita chave privada PKCS#8 (BEGIN PRIVATE KEY) e/ou a pública (BEGIN PUBLIC KEY); só a pública apenas valida.
+	//RSA e Ed25519 derivam a pública da privada; EC precisa dos dois blocos no mesmo arquivo
+	//(openssl pkey -in ec.pem -pubout >> ec.pem).
+	private JWK loadPem(String location) {
+		Resource resource = resourceLoader.getResource(location);
+		String kid = StringUtils.stripFilenameExtension(resource.getFilename());
+		try {
+			String pem = resource.getContentAsString(StandardCharsets.UTF_8);
+			PrivateKey privateKey = null;
+			PublicKey publicKey = null;
+			Matcher matcher = PEM_BLOCK.matcher(pem);
+			while (matcher.find()) {
+				byte[] der = Base64.getMimeDecoder().decode(matcher.group(2));
+				switch (matcher.group(1)) {
+					case "PRIVATE KEY" -> privateKey = privateKey(der);
+					case "PUBLIC KEY" -> publicKey = publicKey(der);
+					default -> throw new IllegalStateException("Formato PEM não suportado (use PKCS#8): " + location);
+				}
+			}
+			if (privateKey == null && publicKey == null) {
+				throw new IllegalStateException("Formato PEM não suportado (use PKCS#8): " + location);
+			}
+			return toJwk(kid, publicKey, privateKey);
+		}
+		catch (IOException | GeneralSecurityException e) {
+			throw new IllegalStateException("Não foi possível carregar a chave " + location, e);
+		}
+	}
+
+	private static JWK toJwk(String kid, PublicKey publicKey, PrivateKey privateKey) throws GeneralSecurityException {
+		if (privateKey instanceof RSAPrivateCrtKey rsa && publicKey == null) {
+			publicKey = KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(rsa.getModulus(), rsa.getPublicExponent()));
+		}
+		if (publicKey instanceof RSAPublicKey rsa) {
+			return new RSAKey.Builder(rsa).privateKey(privateKey).keyID(kid).build();
+		}
+		if (publicKey instanceof ECPublicKey ec) {
+			return new ECKey.Builder(Curve.forECParameterSpec(ec.getParams()), ec).privateKey(privateKey).keyID(kid).build();
+		}
+		if (privateKey instanceof EdECPrivateKey || publicKey instanceof EdECPublicKey) {
+			byte[] d = privateKey == null ? null : ((EdECPrivateKey) privateKey).getBytes().orElseThrow();
+			byte[] x = publicKey != null ? EdDsaSupport.rawPublicKey(publicKey) : Ed25519Sign.KeyPair.newKeyPairFromSeed(d).getPublicKey();
+			OctetKeyPair.Builder builder = new OctetKeyPair.Builder(Curve.Ed25519, Base64URL.encode(x)).keyID(kid);
+			return (d == null ? builder : builder.d(Base64URL.encode(d))).build();
+		}
+		throw new InvalidKeySpecException("Chave EC sem o bloco PUBLIC KEY");
+	}
+
+	private static PrivateKey privateKey(byte[] der) throws GeneralSecurityException {
+		for (String keyAlgorithm : KEY_ALGORITHMS) {
+			try {
+				return KeyFactory.getInstance(keyAlgorithm).generatePrivate(new PKCS8EncodedKeySpec(der));
+			}
+			catch (InvalidKeySpecException e) {
+				//tenta o próximo algoritmo
+			}
+		}
+		throw new InvalidKeySpecException("Tipo de chave privada não suportado");
+	}
+
+	private static PublicKey publicKey(byte[] der) throws GeneralSecurityException {
+		for (String keyAlgorithm : KEY_ALGORITHMS) {
+			try {
+				return KeyFactory.getInstance(keyAlgorithm).generatePublic(new X509EncodedKeySpec(der));
+			}
+			catch (InvalidKeySpecException e) {
+				//tenta o próximo algoritmo
+			}
+		}
+		throw new InvalidKeySpecException("Tipo de chave pública não suportado");
+	}
+
+	private static JWK generate(JWSAlgorithm algorithm) {
+		String kid = UUID.randomUUID().toString();
+		try {
+			if (JWSAlgorithm.Family.RSA.contains(algorithm)) {
+				return new RSAKeyGenerator(2048).keyID(kid).generate();
+			}
+			if (JWSAlgorithm.Family.EC.contains(algorithm)) {
+				return new ECKeyGenerator(Curve.forJWSAlgorithm(algorithm).iterator().next()).keyID(kid).generate();
+			}
+			return new OctetKeyPairGenerator(Curve.Ed25519).keyID(kid).generate();
+		}
+		catch (JOSEException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.devsuperior.dscommerce.config;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+import org.springframework.util.Assert;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.factories.DefaultJWSSignerFactory;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+//Assina com a chave e o algoritmo atuais do JwkKeyRing, ignorando o alg pedido no JwsHeader
+//(o JwtGenerator sempre pede RS256). Substitui o NimbusJwtEncoder, que não seleciona chaves Ed25519.
+public class KeyRingJwtEncoder implements JwtEncoder {
+
+	private final JwkKeyRing keyRing;
+	private final DefaultJWSSignerFactory signerFactory = new DefaultJWSSignerFactory();
+	private final Map<JWK, JWSSigner> signers = new ConcurrentHashMap<>();
+
+	public KeyRingJwtEncoder(JwkKeyRing keyRing) {
+		Assert.notNull(keyRing, "keyRing cannot be null");
+		this.keyRing = keyRing;
+	}
+
+	@Override
+	public Jwt encode(JwtEncoderParameters parameters) throws JwtEncodingException {
+		Assert.notNull(parameters, "parameters cannot be null");
+		JWK jwk = keyRing.getSigningKey();
+		JwtClaimsSet claims = parameters.getClaims();
+
+		JWSHeader header = new JWSHeader.Builder(keyRing.getAlgorithm())
+				.type(JOSEObjectType.JWT)
+				.keyID(jwk.getKeyID())
+				.build();
+		JWTClaimsSet.Builder claimsBuilder = new JWTClaimsSet.Builder();
+		claims.getClaims().forEach((name, value) -> claimsBuilder.claim(name, convert(value)));
+
+		SignedJWT signedJwt = new SignedJWT(header, claimsBuilder.build());
+		try {
+			signedJwt.sign(signer(jwk));
+		}
+		catch (JOSEException e) {
+			throw new JwtEncodingException("An error occurred while attempting to encode the Jwt: " + e.getMessage(), e);
+		}
+		return new Jwt(signedJwt.serialize(), claims.getIssuedAt(), claims.getExpiresAt(), header.toJSONObject(),
+				claims.getClaims());
+	}
+
+	//Reaproveita o signer enquanto a chave de assinatura não muda (o reload recria JWKs iguais)
+	private JWSSigner signer(JWK jwk) throws JOSEException {
+		JWSSigner signer = signers.get(jwk);
+		if (signer == null) {
+			signer = signerFactory.createJWSSigner(jwk, keyRing.getAlgorithm());
+			signers.put(jwk, signer);
+		}
+		return signer;
+	}
+
+	//Datas registradas (exp, iat, nbf) são serializadas pelo Nimbus em segundos a partir de Date
+	private static Object convert(Object value) {
+		if (value instanceof Instant instant) {
+			return Date.from(instant);
+		}
+		if (value instanceof URL url) {
+			return url.toExternalForm();
+		}
+		return value;
+	}
+}
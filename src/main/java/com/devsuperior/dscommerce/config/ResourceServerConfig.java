@@ -2,7 +2,10 @@ package com.devsuperior.dscommerce.config;
 
 import java.util.Arrays;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.boot.autoconfigure.security.servlet.PathRequest;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -30,6 +33,9 @@ public class ResourceServerConfig {
 	@Value("${cors.origins}")
 	private String corsOrigins;
 
+	@Autowired
+	private CompactRoleClaims compactRoleClaims;
+
 	@Bean
 	@Profile("test")
 	@Order(1)
@@ -39,6 +45,20 @@ public class ResourceServerConfig {
 		return http.build();
 	}
 
+	//Ordem própria, antes da cadeia do authorization server (@Order(2)), que casa com "/**"
+	@Bean
+	@Order(0)
+	public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http) throws Exception {
+		http.securityMatcher(EndpointRequest.toAnyEndpoint());
+		// @formatter:off
+		http.authorizeHttpRequests(authorize -> authorize
+			.requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+			.anyRequest().hasRole("ADMIN"));
+		// @formatter:on
+		http.oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer.jwt(Customizer.withDefaults()));
+		return http.build();
+	}
+
 	@Bean
 	@Order(3)
 	public SecurityFilterChain rsSecurityFilterChain(HttpSecurity http) throws Exception {
@@ -55,8 +75,15 @@ public class ResourceServerConfig {
 		grantedAuthoritiesConverter.setAuthoritiesClaimName("authorities");
 		grantedAuthoritiesConverter.setAuthorityPrefix("");
 
+		//Aceita os dois formatos do access token, para que trocar security.jwt.claims-format não invalide os já emitidos
 		JwtAuthenticationConverter jwtAuthenticationConverter = new JwtAuthenticationConverter();
-		jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(grantedAuthoritiesConverter);
+		jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(jwt -> {
+			Object roles = jwt.getClaim(CompactRoleClaims.CLAIM);
+			if (roles instanceof Number mask) {
+				return compactRoleClaims.decode(mask.longValue());
+			}
+			return grantedAuthoritiesConverter.convert(jwt);
+		});
 		return jwtAuthenticationConverter;
 	}
 
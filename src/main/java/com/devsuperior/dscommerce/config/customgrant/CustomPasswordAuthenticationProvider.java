@@ -1,24 +1,25 @@
 package com.devsuperior.dscommerce.config.customgrant;
 
 import java.security.Principal;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.ClaimAccessor;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
 import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
 import org.springframework.security.oauth2.core.OAuth2Error;
 import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
 import org.springframework.security.oauth2.core.OAuth2Token;
 import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
@@ -32,29 +33,46 @@ import org.springframework.security.oauth2.server.authorization.token.OAuth2Toke
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
 import org.springframework.util.Assert;
 
+import com.devsuperior.dscommerce.entities.User;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+//Singleton compartilhado por todas as requisições do token endpoint: o estado de cada login fica em
+//variáveis locais e nos objetos da própria requisição, nunca em campos.
 public class CustomPasswordAuthenticationProvider implements AuthenticationProvider {
 
 	private static final String ERROR_URI = "https://datatracker.ietf.org/doc/html/rfc6749#section-5.2";
+	private static final AuthorizationGrantType PASSWORD = new AuthorizationGrantType("password");
 	private final OAuth2AuthorizationService authorizationService;
 	private final UserDetailsService userDetailsService;
 	private final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator;
 	private final PasswordEncoder passwordEncoder;
-	private String username = "";
-	private String password = "";
-	private Set<String> authorizedScopes = new HashSet<>();
+	private final PasswordVerificationPool passwordVerificationPool;
+	private UserDetailsPasswordService userDetailsPasswordService;
+	private final Timer lookupTimer;
+	private final Timer passwordTimer;
+	private final Timer signingTimer;
 
 	public CustomPasswordAuthenticationProvider(OAuth2AuthorizationService authorizationService,
 			OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator, 
-			UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+			UserDetailsService userDetailsService, PasswordEncoder passwordEncoder,
+			PasswordVerificationPool passwordVerificationPool, MeterRegistry meterRegistry) {
 		
 		Assert.notNull(authorizationService, "authorizationService cannot be null");
 		Assert.notNull(tokenGenerator, "TokenGenerator cannot be null");
 		Assert.notNull(userDetailsService, "UserDetailsService cannot be null");
 		Assert.notNull(passwordEncoder, "PasswordEncoder cannot be null");
+		Assert.notNull(passwordVerificationPool, "PasswordVerificationPool cannot be null");
+		Assert.notNull(meterRegistry, "MeterRegistry cannot be null");
 		this.authorizationService = authorizationService;
 		this.tokenGenerator = tokenGenerator;
 		this.userDetailsService = userDetailsService;
 		this.passwordEncoder = passwordEncoder;
+		this.passwordVerificationPool = passwordVerificationPool;
+		this.lookupTimer = phaseTimer(meterRegistry, "lookup");
+		this.passwordTimer = phaseTimer(meterRegistry, "password");
+		this.signingTimer = phaseTimer(meterRegistry, "signing");
 	}
 	
 	@Override
@@ -63,33 +81,35 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 		CustomPasswordAuthenticationToken customPasswordAuthenticationToken = (CustomPasswordAuthenticationToken) authentication;
 		OAuth2ClientAuthenticationToken clientPrincipal = getAuthenticatedClientElseThrowInvalidClient(customPasswordAuthenticationToken);
 		RegisteredClient registeredClient = clientPrincipal.getRegisteredClient();
-		username = customPasswordAuthenticationToken.getUsername();
-		password = customPasswordAuthenticationToken.getPassword();	
+		String username = customPasswordAuthenticationToken.getUsername();
+		String password = customPasswordAuthenticationToken.getPassword();
 		
-		UserDetails user = null;
+		UserDetails user;
+		Timer.Sample lookup = Timer.start();
 		try {
 			user = userDetailsService.loadUserByUsername(username);
 		} catch (UsernameNotFoundException e) {
 			throw new OAuth2AuthenticationException("Invalid credentials");
+		} finally {
+			lookup.stop(lookupTimer);
 		}
-				
-		if (!passwordEncoder.matches(password, user.getPassword()) || !user.getUsername().equals(username)) {
+		
+		Timer.Sample matches = Timer.start();
+		boolean passwordMatches = passwordVerificationPool.matches(passwordEncoder, password, user.getPassword());
+		matches.stop(passwordTimer);
+		if (!passwordMatches || !user.getUsername().equals(username)) {
 			throw new OAuth2AuthenticationException("Invalid credentials");
 		}
+		upgradeEncoding(user, password);
 		
-		authorizedScopes = user.getAuthorities().stream()
+		Set<String> authorizedScopes = user.getAuthorities().stream()
 				.map(scope -> scope.getAuthority())
 				.filter(scope -> registeredClient.getScopes().contains(scope))
 				.collect(Collectors.toSet());
 		
-		//-----------Create a new Security Context Holder Context----------
-		OAuth2ClientAuthenticationToken oAuth2ClientAuthenticationToken = (OAuth2ClientAuthenticationToken) SecurityContextHolder.getContext().getAuthentication();
-		CustomUserAuthorities customPasswordUser = new CustomUserAuthorities(username, user.getAuthorities());
-		oAuth2ClientAuthenticationToken.setDetails(customPasswordUser);
-		
-		var newcontext = SecurityContextHolder.createEmptyContext();
-		newcontext.setAuthentication(oAuth2ClientAuthenticationToken);
-		SecurityContextHolder.setContext(newcontext);		
+		//O clientPrincipal é o mesmo objeto do SecurityContext desta requisição: o tokenCustomizer lê o usuário dele
+		Long userId = (user instanceof User entity) ? entity.getId() : null;
+		clientPrincipal.setDetails(new CustomUserAuthorities(userId, username, user.getAuthorities()));
 		
 		//-----------TOKEN BUILDERS----------
 		DefaultOAuth2TokenContext.Builder tokenContextBuilder = DefaultOAuth2TokenContext.builder()
@@ -97,18 +117,20 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 				.principal(clientPrincipal)
 				.authorizationServerContext(AuthorizationServerContextHolder.getContext())
 				.authorizedScopes(authorizedScopes)
-				.authorizationGrantType(new AuthorizationGrantType("password"))
+				.authorizationGrantType(PASSWORD)
 				.authorizationGrant(customPasswordAuthenticationToken);
 		
 		OAuth2Authorization.Builder authorizationBuilder = OAuth2Authorization.withRegisteredClient(registeredClient)
 				.attribute(Principal.class.getName(), clientPrincipal)
 				.principalName(clientPrincipal.getName())
-				.authorizationGrantType(new AuthorizationGrantType("password"))
+				.authorizationGrantType(PASSWORD)
 				.authorizedScopes(authorizedScopes);
 		
 		//-----------ACCESS TOKEN----------
 		OAuth2TokenContext tokenContext = tokenContextBuilder.tokenType(OAuth2TokenType.ACCESS_TOKEN).build();
+		Timer.Sample signing = Timer.start();
 		OAuth2Token generatedAccessToken = this.tokenGenerator.generate(tokenContext);
+		signing.stop(signingTimer);
 		if (generatedAccessToken == null) {
 			OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.SERVER_ERROR,
 					"The token generator failed to generate the access token.", ERROR_URI);
@@ -124,11 +146,56 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 		} else {
 			authorizationBuilder.accessToken(accessToken);
 		}
+
+		//-----------REFRESH TOKEN----------
+		//Renovado pelo grant refresh_token padrão do Authorization Server, sem verificar a senha de novo
+		OAuth2RefreshToken refreshToken = null;
+		if (registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.REFRESH_TOKEN) &&
+				!clientPrincipal.getClientAuthenticationMethod().equals(ClientAuthenticationMethod.NONE)) {
+			tokenContext = tokenContextBuilder.tokenType(OAuth2TokenType.REFRESH_TOKEN).build();
+			OAuth2Token generatedRefreshToken = this.tokenGenerator.generate(tokenContext);
+			if (!(generatedRefreshToken instanceof OAuth2RefreshToken)) {
+				OAuth2Error error = new OAuth2Error(OAuth2ErrorCodes.SERVER_ERROR,
+						"The token generator failed to generate the refresh token.", ERROR_URI);
+				throw new OAuth2AuthenticationException(error);
+			}
+			refreshToken = (OAuth2RefreshToken) generatedRefreshToken;
+			authorizationBuilder.refreshToken(refreshToken);
+		}
 				
 		OAuth2Authorization authorization = authorizationBuilder.build();
 		this.authorizationService.save(authorization);
 		
-		return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken);
+		return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken, refreshToken);
+	}
+
+	//Com a senha já validada, regrava o hash quando o algoritmo ou o custo configurado mudou.
+	//A atualização é opcional: com o pool saturado fica para o próximo login, em vez de recusar este com 429.
+	private void upgradeEncoding(UserDetails user, String presentedPassword) {
+		if (userDetailsPasswordService != null && passwordEncoder.upgradeEncoding(user.getPassword())) {
+			String newPassword;
+			try {
+				newPassword = passwordVerificationPool.encode(passwordEncoder, presentedPassword);
+			} catch (OAuth2AuthenticationException e) {
+				if (OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE.equals(e.getError().getErrorCode())) {
+					return;
+				}
+				throw e;
+			}
+			userDetailsPasswordService.updatePassword(user, newPassword);
+		}
+	}
+
+	public void setUserDetailsPasswordService(UserDetailsPasswordService userDetailsPasswordService) {
+		this.userDetailsPasswordService = userDetailsPasswordService;
+	}
+
+	//Separa a latência do token endpoint em busca do usuário, verificação da senha e assinatura do JWT
+	private static Timer phaseTimer(MeterRegistry meterRegistry, String phase) {
+		return Timer.builder("dscommerce.token.issuance")
+				.description("Token issuance latency by phase")
+				.tag("phase", phase)
+				.register(meterRegistry);
 	}
 
 	@Override
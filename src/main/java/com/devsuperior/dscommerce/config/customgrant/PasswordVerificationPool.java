@@ -0,0 +1,85 @@
+package com.devsuperior.dscommerce.config.customgrant;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.util.Assert;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+//Executa o BCrypt em um pool próprio e limitado, fora das threads do Tomcat.
+//Com o pool e a fila cheios a verificação é rejeitada na hora (temporarily_unavailable -> 429).
+public class PasswordVerificationPool {
+
+	private final ThreadPoolExecutor executor;
+	private final Counter rejected;
+
+	public PasswordVerificationPool(int threads, int queueCapacity, MeterRegistry meterRegistry) {
+		Assert.isTrue(threads > 0, "threads must be greater than zero");
+		Assert.isTrue(queueCapacity > 0, "queueCapacity must be greater than zero");
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-verification-"),
+				new ThreadPoolExecutor.AbortPolicy());
+
+		Gauge.builder("dscommerce.password.verification.queue", executor, x -> x.getQueue().size())
+				.description("Password verifications waiting for a thread")
+				.register(meterRegistry);
+		Gauge.builder("dscommerce.password.verification.active", executor, ThreadPoolExecutor::getActiveCount)
+				.description("Password verifications running")
+				.register(meterRegistry);
+		this.rejected = Counter.builder("dscommerce.password.verification.rejected")
+				.description("Password verifications rejected because the pool was saturated")
+				.register(meterRegistry);
+	}
+
+	public boolean matches(PasswordEncoder passwordEncoder, String rawPassword, String encodedPassword) {
+		return execute(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+	}
+
+	public String encode(PasswordEncoder passwordEncoder, String rawPassword) {
+		return execute(() -> passwordEncoder.encode(rawPassword));
+	}
+
+	private <T> T execute(Callable<T> task) {
+		Future<T> result;
+		try {
+			result = executor.submit(task);
+		}
+		catch (RejectedExecutionException e) {
+			rejected.increment();
+			throw new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE,
+					"Too many concurrent logins, try again later", null));
+		}
+
+		try {
+			return result.get();
+		}
+		catch (InterruptedException e) {
+			result.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new OAuth2AuthenticationException(OAuth2ErrorCodes.SERVER_ERROR);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,42 @@
+package com.devsuperior.dscommerce.config.customgrant;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.http.converter.OAuth2ErrorHttpMessageConverter;
+import org.springframework.security.oauth2.server.authorization.web.authentication.OAuth2ErrorAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+//Responde 429 com Retry-After quando o pool de verificação de senha rejeita o login;
+//os demais erros seguem o tratamento padrão do token endpoint (400/401)
+public class TokenErrorResponseHandler implements AuthenticationFailureHandler {
+
+	private static final String RETRY_AFTER_SECONDS = "1";
+
+	private final AuthenticationFailureHandler delegate = new OAuth2ErrorAuthenticationFailureHandler();
+	private final OAuth2ErrorHttpMessageConverter errorConverter = new OAuth2ErrorHttpMessageConverter();
+
+	@Override
+	public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
+			AuthenticationException exception) throws IOException, ServletException {
+
+		if (exception instanceof OAuth2AuthenticationException oauth2Exception
+				&& OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE.equals(oauth2Exception.getError().getErrorCode())) {
+			ServletServerHttpResponse httpResponse = new ServletServerHttpResponse(response);
+			httpResponse.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+			httpResponse.getHeaders().set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+			errorConverter.write(oauth2Exception.getError(), null, httpResponse);
+			return;
+		}
+		delegate.onAuthenticationFailure(request, response, exception);
+	}
+}
@@ -1,14 +1,20 @@
 package com.devsuperior.dscommerce.controllers;
 
+import java.time.Duration;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.devsuperior.dscommerce.dto.CategoryDTO;
+import com.devsuperior.dscommerce.dto.CategoryListDTO;
 import com.devsuperior.dscommerce.services.CategoryService;
 
 @RestController
@@ -18,9 +24,26 @@ public class CategoryController {
     @Autowired
     private CategoryService service;
 
+    @Value("${cache.categories.max-age}")
+    private Long maxAgeSeconds;
+
+    //Com ETag presente, um If-None-Match igual é respondido com 304 e sem corpo
     @GetMapping
     public ResponseEntity<List<CategoryDTO>> findAll() {
-        List<CategoryDTO> list = service.findAll();
-        return ResponseEntity.ok(list);
+        CategoryListDTO list = service.findAll();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic())
+                .eTag(list.getEtag())
+                .body(list.getCategories());
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/refresh")
+    public ResponseEntity<List<CategoryDTO>> refresh() {
+        CategoryListDTO list = service.refresh();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .eTag(list.getEtag())
+                .body(list.getCategories());
     }
 }
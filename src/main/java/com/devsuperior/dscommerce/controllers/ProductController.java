@@ -3,8 +3,8 @@ package com.devsuperior.dscommerce.controllers;
 import java.net.URI;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -18,8 +18,10 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.devsuperior.dscommerce.dto.CursorPageDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.dto.StockAdjustmentDTO;
 import com.devsuperior.dscommerce.services.ProductService;
 
 import jakarta.validation.Valid;
@@ -37,11 +39,23 @@ public class ProductController {
         return ResponseEntity.ok(dto);
     }
 
+    //withTotal=false devolve um Slice (sem totalElements/totalPages) e evita a consulta de COUNT
     @GetMapping
-    public ResponseEntity<Page<ProductMinDTO>> findAll(
+    public ResponseEntity<Slice<ProductMinDTO>> findAll(
             @RequestParam(name = "name", defaultValue = "") String name,
+            @RequestParam(name = "withTotal", defaultValue = "true") boolean withTotal,
             Pageable pageable) {
-        Page<ProductMinDTO> dto = service.findAll(name, pageable);
+        Slice<ProductMinDTO> dto = withTotal ? service.findAll(name, pageable) : service.findAllSlice(name, pageable);
+        return ResponseEntity.ok(dto);
+    }
+
+    //Modo cursor: a primeira página é pedida com after vazio e as seguintes com o "next" da resposta anterior
+    @GetMapping(params = "after")
+    public ResponseEntity<CursorPageDTO<ProductMinDTO>> findAllAfter(
+            @RequestParam(name = "name", defaultValue = "") String name,
+            @RequestParam(name = "after") String after,
+            Pageable pageable) {
+        CursorPageDTO<ProductMinDTO> dto = service.findAllAfter(name, after, pageable);
         return ResponseEntity.ok(dto);
     }
 
@@ -61,6 +75,14 @@ public class ProductController {
         return ResponseEntity.ok(dto);
     }
 
+    //Quantidade positiva é entrada de estoque e negativa é baixa; 409 se a baixa passar do estoque
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/{id}/stock")
+    public ResponseEntity<Void> adjustStock(@PathVariable Long id, @Valid @RequestBody StockAdjustmentDTO dto) {
+        service.adjustStock(id, dto);
+        return ResponseEntity.noContent().build();
+    }
+
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping(value = "/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
@@ -0,0 +1,30 @@
+package com.devsuperior.dscommerce.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.util.DigestUtils;
+
+//Lista de categorias com o ETag já calculado: fica no cache junto com a lista e não é recalculado a cada GET
+public class CategoryListDTO {
+
+	private List<CategoryDTO> categories;
+	private String etag;
+
+	public CategoryListDTO(List<CategoryDTO> categories) {
+		this.categories = categories;
+		StringBuilder sb = new StringBuilder();
+		for (CategoryDTO dto : categories) {
+			sb.append(dto.getId()).append(':').append(dto.getName()).append('\n');
+		}
+		etag = "\"" + DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+	}
+
+	public List<CategoryDTO> getCategories() {
+		return categories;
+	}
+
+	public String getEtag() {
+		return etag;
+	}
+}
@@ -8,6 +8,7 @@ import com.devsuperior.dscommerce.entities.Order;
 import com.devsuperior.dscommerce.entities.OrderItem;
 import com.devsuperior.dscommerce.entities.OrderStatus;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 
 public class OrderDTO {
@@ -20,6 +21,7 @@ public class OrderDTO {
 	
 	private PaymentDTO payment;
 	
+	@Valid
 	@NotEmpty(message = "Deve ter pelo menos um item")
 	private List<OrderItemDTO> items = new ArrayList<>();
 
@@ -5,11 +5,13 @@ import java.util.List;
 
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Size;
 
 public class ProductDTO {
@@ -25,6 +27,12 @@ public class ProductDTO {
     @Positive(message = "O preço deve ser positivo")
     private Double price;
     private String imgUrl;
+
+    //Estoque inicial, lido só no insert. Não volta nas respostas: o DTO fica no cache de produtos
+    //e o estoque muda a cada pedido
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    @PositiveOrZero(message = "O estoque não pode ser negativo")
+    private Integer stock;
     
     @NotEmpty(message = "Deve ter pelo menos uma categoria")
     private List<CategoryDTO> categories = new ArrayList<>();
@@ -71,6 +79,10 @@ public class ProductDTO {
         return imgUrl;
     }
 
+    public Integer getStock() {
+        return stock;
+    }
+
 	public List<CategoryDTO> getCategories() {
 		return categories;
 	}
@@ -0,0 +1,21 @@
+package com.devsuperior.dscommerce.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+public class StockAdjustmentDTO {
+
+    //Positiva para entrada de estoque, negativa para baixa
+    @NotNull(message = "Campo requerido")
+    private Integer quantity;
+
+    public StockAdjustmentDTO() {
+    }
+
+    public StockAdjustmentDTO(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+}
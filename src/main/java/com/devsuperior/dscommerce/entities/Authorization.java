@@ -0,0 +1,211 @@
+package com.devsuperior.dscommerce.entities;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+//Autorização emitida pelo token endpoint. Dos tokens só o hash SHA-256 do valor é gravado: é curto e indexável,
+//e uma cópia da tabela não entrega nenhuma credencial válida.
+@Entity
+@Table(name = "tb_authorization", indexes = {
+        @Index(name = "ix_authorization_access_token", columnList = "access_token_hash"),
+        @Index(name = "ix_authorization_refresh_token", columnList = "refresh_token_hash"),
+        @Index(name = "ix_authorization_expires_at", columnList = "expires_at")})
+public class Authorization {
+
+    @Id
+    private String id;
+    private String clientId;
+    private String clientAuthenticationMethod;
+    private String principalName;
+    private String authorizationGrantType;
+    @Column(length = 1000)
+    private String authorizedScopes;
+
+    private Long userId;
+    private String username;
+    @Column(length = 1000)
+    private String authorities;
+
+    @Column(length = 64)
+    private String accessTokenHash;
+    private Instant accessTokenIssuedAt;
+    private Instant accessTokenExpiresAt;
+    private boolean accessTokenInvalidated;
+
+    @Column(length = 64)
+    private String refreshTokenHash;
+    private Instant refreshTokenIssuedAt;
+    private Instant refreshTokenExpiresAt;
+    private boolean refreshTokenInvalidated;
+
+    //Maior validade entre os tokens: depois dela a autorização pode ser removida
+    private Instant expiresAt;
+
+    public Authorization() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getClientAuthenticationMethod() {
+        return clientAuthenticationMethod;
+    }
+
+    public void setClientAuthenticationMethod(String clientAuthenticationMethod) {
+        this.clientAuthenticationMethod = clientAuthenticationMethod;
+    }
+
+    public String getPrincipalName() {
+        return principalName;
+    }
+
+    public void setPrincipalName(String principalName) {
+        this.principalName = principalName;
+    }
+
+    public String getAuthorizationGrantType() {
+        return authorizationGrantType;
+    }
+
+    public void setAuthorizationGrantType(String authorizationGrantType) {
+        this.authorizationGrantType = authorizationGrantType;
+    }
+
+    public String getAuthorizedScopes() {
+        return authorizedScopes;
+    }
+
+    public void setAuthorizedScopes(String authorizedScopes) {
+        this.authorizedScopes = authorizedScopes;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getAuthorities() {
+        return authorities;
+    }
+
+    public void setAuthorities(String authorities) {
+        this.authorities = authorities;
+    }
+
+    public String getAccessTokenHash() {
+        return accessTokenHash;
+    }
+
+    public void setAccessTokenHash(String accessTokenHash) {
+        this.accessTokenHash = accessTokenHash;
+    }
+
+    public Instant getAccessTokenIssuedAt() {
+        return accessTokenIssuedAt;
+    }
+
+    public void setAccessTokenIssuedAt(Instant accessTokenIssuedAt) {
+        this.accessTokenIssuedAt = accessTokenIssuedAt;
+    }
+
+    public Instant getAccessTokenExpiresAt() {
+        return accessTokenExpiresAt;
+    }
+
+    public void setAccessTokenExpiresAt(Instant accessTokenExpiresAt) {
+        this.accessTokenExpiresAt = accessTokenExpiresAt;
+    }
+
+    public boolean isAccessTokenInvalidated() {
+        return accessTokenInvalidated;
+    }
+
+    public void setAccessTokenInvalidated(boolean accessTokenInvalidated) {
+        this.accessTokenInvalidated = accessTokenInvalidated;
+    }
+
+    public String getRefreshTokenHash() {
+        return refreshTokenHash;
+    }
+
+    public void setRefreshTokenHash(String refreshTokenHash) {
+        this.refreshTokenHash = refreshTokenHash;
+    }
+
+    public Instant getRefreshTokenIssuedAt() {
+        return refreshTokenIssuedAt;
+    }
+
+    public void setRefreshTokenIssuedAt(Instant refreshTokenIssuedAt) {
+        this.refreshTokenIssuedAt = refreshTokenIssuedAt;
+    }
+
+    public Instant getRefreshTokenExpiresAt() {
+        return refreshTokenExpiresAt;
+    }
+
+    public void setRefreshTokenExpiresAt(Instant refreshTokenExpiresAt) {
+        this.refreshTokenExpiresAt = refreshTokenExpiresAt;
+    }
+
+    public boolean isRefreshTokenInvalidated() {
+        return refreshTokenInvalidated;
+    }
+
+    public void setRefreshTokenInvalidated(boolean refreshTokenInvalidated) {
+        this.refreshTokenInvalidated = refreshTokenInvalidated;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Authorization that = (Authorization) o;
+
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
+    }
+}
@@ -2,13 +2,18 @@ package com.devsuperior.dscommerce.entities;
 
 import jakarta.persistence.EmbeddedId;
 import jakarta.persistence.Entity;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 
 import java.util.Objects;
 
+import org.springframework.data.domain.Persistable;
+
 @Entity
 @Table(name = "tb_order_item")
-public class OrderItem {
+public class OrderItem implements Persistable<OrderItemPK> {
 
     @EmbeddedId
     private OrderItemPK id = new OrderItemPK();
@@ -16,6 +21,10 @@ public class OrderItem {
     private Integer quantity;
     private Double price;
 
+    //A chave é atribuída, então sem isso o saveAll faria merge (um SELECT por item) em vez de persist
+    @Transient
+    private boolean isNew = true;
+
     public OrderItem() {
     }
 
@@ -26,6 +35,22 @@ public class OrderItem {
         this.price = price;
     }
 
+    @Override
+    public OrderItemPK getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+
     public Order getOrder() {
         return id.getOrder();
     }
@@ -0,0 +1,18 @@
+package com.devsuperior.dscommerce.entities;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+//Id gerado por sequence com otimizador pooled-lo; o tamanho do bloco é PooledSequenceGenerator.ALLOCATION_SIZE
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface PooledSequence {
+
+    String name();
+}
@@ -0,0 +1,36 @@
+package com.devsuperior.dscommerce.entities;
+
+import java.lang.reflect.Member;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.generator.AnnotationBasedGenerator;
+import org.hibernate.generator.GeneratorCreationContext;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+public class PooledSequenceGenerator extends SequenceStyleGenerator implements AnnotationBasedGenerator<PooledSequence> {
+
+    //Fixo, e não configurável: com pooled-lo precisa ser igual ao INCREMENT BY da sequence no banco.
+    //Um valor diferente em um banco já criado faz instâncias reservarem blocos sobrepostos (chave duplicada).
+    //Mudar exige migrar as sequences (ALTER SEQUENCE ... INCREMENT BY) junto com o deploy.
+    public static final int ALLOCATION_SIZE = 50;
+
+    private String sequenceName;
+
+    @Override
+    public void initialize(PooledSequence config, Member member, GeneratorCreationContext context) {
+        this.sequenceName = config.name();
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        parameters.put(SEQUENCE_PARAM, sequenceName);
+        parameters.put(INCREMENT_PARAM, String.valueOf(ALLOCATION_SIZE));
+        //pooled-lo: o valor lido da sequence é o início do bloco, então inserts externos com NEXT VALUE não colidem
+        parameters.put(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
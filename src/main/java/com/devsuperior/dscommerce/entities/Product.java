@@ -7,8 +7,6 @@ import java.util.Set;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
@@ -21,7 +19,7 @@ import jakarta.persistence.Table;
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence(name = "seq_product")
     private Long id;
     private String name;
     
@@ -30,6 +28,12 @@ public class Product {
     private Double price;
     private String imgUrl;
 
+    //Fora do UPDATE gerado pelo dirty checking: um PUT concorrente gravaria de volta um valor lido antes das reservas.
+    //O valor inicial vem do insert (ProductDTO.stock); depois só muda pelos UPDATEs condicionais do
+    //ProductRepository (reserveStock/releaseStock/adjustStock).
+    @Column(nullable = false, updatable = false)
+    private Integer stock = 0;
+
     @ManyToMany
     @JoinTable(name = "tb_product_category",
             joinColumns = @JoinColumn(name = "product_id"),
@@ -90,6 +94,14 @@ public class Product {
         this.imgUrl = imgUrl;
     }
 
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+
     public Set<Category> getCategories() {
         return categories;
     }
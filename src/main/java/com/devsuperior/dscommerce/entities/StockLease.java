@@ -0,0 +1,79 @@
+package com.devsuperior.dscommerce.entities;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+//Cota de um produto quente mantida em memória por uma instância (HotStockCounters), já debitada de tb_product.stock.
+//Renovada a cada rebalance; uma linha que parou de ser renovada é de uma instância que caiu.
+@Entity
+@Table(name = "tb_stock_lease", indexes = @Index(name = "ix_stock_lease_renewed_at", columnList = "renewed_at"))
+public class StockLease {
+
+    @EmbeddedId
+    private StockLeasePK id = new StockLeasePK();
+
+    //Unidades na cota na última renovação: pedidos posteriores já podem ter consumido parte delas
+    private Long quantity;
+
+    @Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
+    private Instant renewedAt;
+
+    public StockLease() {
+    }
+
+    public StockLease(String instanceId, Long productId, Long quantity, Instant renewedAt) {
+        id.setInstanceId(instanceId);
+        id.setProductId(productId);
+        this.quantity = quantity;
+        this.renewedAt = renewedAt;
+    }
+
+    public StockLeasePK getId() {
+        return id;
+    }
+
+    public String getInstanceId() {
+        return id.getInstanceId();
+    }
+
+    public Long getProductId() {
+        return id.getProductId();
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+
+    public Instant getRenewedAt() {
+        return renewedAt;
+    }
+
+    public void setRenewedAt(Instant renewedAt) {
+        this.renewedAt = renewedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        StockLease that = (StockLease) o;
+
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.devsuperior.dscommerce.entities;
+
+import jakarta.persistence.Embeddable;
+
+import java.util.Objects;
+
+@Embeddable
+public class StockLeasePK {
+
+    private String instanceId;
+    private Long productId;
+
+    public StockLeasePK() {
+    }
+
+    public StockLeasePK(String instanceId, Long productId) {
+        this.instanceId = instanceId;
+        this.productId = productId;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        StockLeasePK that = (StockLeasePK) o;
+
+        if (!Objects.equals(instanceId, that.instanceId)) return false;
+        return Objects.equals(productId, that.productId);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = instanceId != null ? instanceId.hashCode() : 0;
+        result = 31 * result + (productId != null ? productId.hashCode() : 0);
+        return result;
+    }
+}
@@ -0,0 +1,26 @@
+package com.devsuperior.dscommerce.repositories;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import com.devsuperior.dscommerce.entities.Authorization;
+
+public interface AuthorizationRepository extends JpaRepository<Authorization, String> {
+
+    Optional<Authorization> findByAccessTokenHash(String accessTokenHash);
+
+    Optional<Authorization> findByRefreshTokenHash(String refreshTokenHash);
+
+    @Query("SELECT obj FROM Authorization obj " +
+            "WHERE obj.accessTokenHash = :tokenHash OR obj.refreshTokenHash = :tokenHash")
+    Optional<Authorization> searchByTokenHash(String tokenHash);
+
+    @Query("SELECT obj.id FROM Authorization obj " +
+            "WHERE obj.expiresAt < :now")
+    List<String> searchExpiredIds(Instant now, Pageable pageable);
+}
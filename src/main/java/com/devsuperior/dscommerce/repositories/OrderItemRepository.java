@@ -1,10 +1,16 @@
 package com.devsuperior.dscommerce.repositories;
 
+import java.time.Instant;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.devsuperior.dscommerce.entities.OrderItem;
 import com.devsuperior.dscommerce.entities.OrderItemPK;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, OrderItemPK> {
 
+    @Query("SELECT COALESCE(SUM(obj.quantity), 0) FROM OrderItem obj " +
+            "WHERE obj.id.product.id = :productId AND obj.id.order.moment >= :since")
+    long sumQuantityByProductSince(Long productId, Instant since);
 }
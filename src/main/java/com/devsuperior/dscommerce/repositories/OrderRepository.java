@@ -1,9 +1,33 @@
 package com.devsuperior.dscommerce.repositories;
 
+import java.util.Collection;
+import java.util.Optional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import com.devsuperior.dscommerce.entities.Order;
+import com.devsuperior.dscommerce.entities.OrderStatus;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+	//Carrega o pedido com cliente, pagamento, itens e produtos em uma única consulta
+	@Query("""
+			SELECT DISTINCT obj FROM Order obj
+			JOIN FETCH obj.client
+			LEFT JOIN FETCH obj.payment
+			LEFT JOIN FETCH obj.items item
+			LEFT JOIN FETCH item.id.product
+			WHERE obj.id = :id
+			""")
+	Optional<Order> searchWithItemsById(Long id);
+
+	//Troca o status só se ele ainda for um dos esperados: entre requisições concorrentes apenas uma recebe 1
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE Order obj SET obj.status = :status WHERE obj.id = :id AND obj.status IN :expected")
+	int updateStatus(Long id, OrderStatus status, Collection<OrderStatus> expected);
+
+	@Query("SELECT obj.status FROM Order obj WHERE obj.id = :id")
+	Optional<OrderStatus> searchStatusById(Long id);
 }
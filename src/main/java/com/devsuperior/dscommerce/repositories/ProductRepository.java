@@ -1,14 +1,63 @@
 package com.devsuperior.dscommerce.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.projections.ProductNameProjection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>, ProductRepositoryCustom {
 
-    @Query("SELECT obj FROM Product obj " +
+    //A listagem seleciona só as colunas do ProductMinDTO, sem carregar a description (TEXT)
+    @Query(value = "SELECT new com.devsuperior.dscommerce.dto.ProductMinDTO(obj.id, obj.name, obj.price, obj.imgUrl) " +
+            "FROM Product obj " +
+            "WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%', :name, '%'))",
+            countQuery = "SELECT COUNT(obj) FROM Product obj " +
             "WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%', :name, '%'))")
-    Page<Product> searchByName(String name, Pageable pageable);
+    Page<ProductMinDTO> searchByName(String name, Pageable pageable);
+
+    @Query(value = "SELECT new com.devsuperior.dscommerce.dto.ProductMinDTO(obj.id, obj.name, obj.price, obj.imgUrl) " +
+            "FROM Product obj " +
+            "WHERE obj.id IN :ids",
+            countQuery = "SELECT COUNT(obj) FROM Product obj " +
+            "WHERE obj.id IN :ids")
+    Page<ProductMinDTO> searchByIds(Collection<Long> ids, Pageable pageable);
+
+    //Retornar Slice faz o Spring Data buscar size + 1 linhas em vez de executar o COUNT
+    @Query("SELECT new com.devsuperior.dscommerce.dto.ProductMinDTO(obj.id, obj.name, obj.price, obj.imgUrl) " +
+            "FROM Product obj " +
+            "WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%', :name, '%'))")
+    Slice<ProductMinDTO> searchSliceByName(String name, Pageable pageable);
+
+    @Query("SELECT new com.devsuperior.dscommerce.dto.ProductMinDTO(obj.id, obj.name, obj.price, obj.imgUrl) " +
+            "FROM Product obj " +
+            "WHERE obj.id IN :ids")
+    Slice<ProductMinDTO> searchSliceByIds(Collection<Long> ids, Pageable pageable);
+
+    @Query("SELECT obj.id AS id, obj.name AS name FROM Product obj")
+    List<ProductNameProjection> searchAllNames();
+
+    //Reserva sem lock pessimista nem leitura prévia: só decrementa se houver estoque; 0 linhas afetadas indica falta
+    @Modifying
+    @Query("UPDATE Product obj SET obj.stock = obj.stock - :quantity " +
+            "WHERE obj.id = :id AND obj.stock >= :quantity")
+    int reserveStock(Long id, Integer quantity);
+
+    @Modifying
+    @Query("UPDATE Product obj SET obj.stock = obj.stock + :quantity WHERE obj.id = :id")
+    int releaseStock(Long id, Integer quantity);
+
+    //Entrada (quantidade positiva) ou baixa (negativa) feita pelo admin: a baixa só acontece se o estoque cobrir
+    @Modifying
+    @Query("UPDATE Product obj SET obj.stock = obj.stock + :quantity " +
+            "WHERE obj.id = :id AND obj.stock + :quantity >= 0")
+    int adjustStock(Long id, Integer quantity);
 }
@@ -0,0 +1,15 @@
+package com.devsuperior.dscommerce.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.entities.Product;
+
+public interface ProductRepositoryCustom {
+
+    //Mesma projeção das consultas de listagem, com filtro e ordenação montados em tempo de execução (keyset)
+    List<ProductMinDTO> searchMin(Specification<Product> spec, Sort sort, int limit);
+}
@@ -0,0 +1,41 @@
+package com.devsuperior.dscommerce.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.entities.Product;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //O findBy(spec, ...) do Spring Data carrega a entidade inteira para depois converter em DTO;
+    //aqui o SELECT já sai com as colunas do ProductMinDTO, sem a description (TEXT)
+    @Override
+    public List<ProductMinDTO> searchMin(Specification<Product> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductMinDTO> query = cb.createQuery(ProductMinDTO.class);
+        Root<Product> root = query.from(Product.class);
+        query.select(cb.construct(ProductMinDTO.class,
+                root.get("id"), root.get("name"), root.get("price"), root.get("imgUrl")));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,31 @@
+package com.devsuperior.dscommerce.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import com.devsuperior.dscommerce.entities.StockLease;
+import com.devsuperior.dscommerce.entities.StockLeasePK;
+
+public interface StockLeaseRepository extends JpaRepository<StockLease, StockLeasePK> {
+
+    @Query("SELECT obj FROM StockLease obj WHERE obj.renewedAt < :cutoff")
+    List<StockLease> searchStale(Instant cutoff);
+
+    //Condicionados à última renovação lida: entre instâncias concorrentes só uma recebe 1
+    @Modifying
+    @Query("UPDATE StockLease obj SET obj.quantity = :quantity, obj.renewedAt = :renewedAt " +
+            "WHERE obj.id = :id AND obj.renewedAt = :previous")
+    int renew(StockLeasePK id, Long quantity, Instant renewedAt, Instant previous);
+
+    @Modifying
+    @Query("DELETE FROM StockLease obj WHERE obj.id = :id AND obj.renewedAt = :renewedAt")
+    int deleteIfNotRenewed(StockLeasePK id, Instant renewedAt);
+
+    @Modifying
+    @Query("DELETE FROM StockLease obj WHERE obj.id.instanceId = :instanceId")
+    int deleteByInstance(String instanceId);
+}
@@ -3,7 +3,9 @@ package com.devsuperior.dscommerce.repositories;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import com.devsuperior.dscommerce.entities.User;
@@ -12,7 +14,7 @@ import com.devsuperior.dscommerce.projections.UserDetailsProjection;
 public interface UserRepository extends JpaRepository<User, Long> {
 
 	@Query(nativeQuery = true, value = """
-				SELECT tb_user.email AS username, tb_user.password, tb_role.id AS roleId, tb_role.authority
+				SELECT tb_user.id AS userId, tb_user.email AS username, tb_user.password, tb_role.id AS roleId, tb_role.authority
 				FROM tb_user
 				INNER JOIN tb_user_role ON tb_user.id = tb_user_role.user_id
 				INNER JOIN tb_role ON tb_role.id = tb_user_role.role_id
@@ -20,5 +22,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
 			""")
 	List<UserDetailsProjection> searchUserAndRolesByEmail(String email);
 	
+	//O hash fica fora do cache de login: é lido a cada password grant
+	@Query("SELECT obj.password FROM User obj WHERE obj.email = :email")
+	Optional<String> searchPasswordByEmail(String email);
+	
+	@Modifying
+	@Query("UPDATE User obj SET obj.password = :password WHERE obj.email = :email")
+	void updatePassword(String email, String password);
+	
+	//Os perfis vêm junto porque o usuário autenticado fica em cache, fora da sessão
+	@EntityGraph(attributePaths = "roles")
 	Optional<User> findByEmail(String email);
 }
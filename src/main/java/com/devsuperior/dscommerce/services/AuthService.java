@@ -1,10 +1,12 @@
 package com.devsuperior.dscommerce.services;
 
+import java.util.Optional;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.services.exceptions.ForbiddenException;
+import com.devsuperior.dscommerce.util.CustomUserUtil;
 
 @Service
 public class AuthService {
@@ -12,9 +14,21 @@ public class AuthService {
 	@Autowired
 	private UserService userService;
 	
+	@Autowired
+	private CustomUserUtil customUserUtil;
+	
 	public void validateSelfOrAdmin(Long userId) {
+		//Com a claim user_id no token a decisão sai só das claims, sem consultar o banco
+		Optional<Long> loggedUserId = customUserUtil.getLoggedUserId();
+		if (loggedUserId.isPresent()) {
+			if (!customUserUtil.loggedHasAuthority("ROLE_ADMIN") && !loggedUserId.get().equals(userId)) {
+				throw new ForbiddenException("Access denied. Should be self or admin");
+			}
+			return;
+		}
+		
 		//Verifica se o usuário éstá autenticado como Admin ou se é ele mesmo para acessar os pedidos
-		User me = userService.authenticated();
+		AuthenticatedUser me = userService.authenticated();
 		if (me.hasRole("ROLE_ADMIN")) {
 			return;
 		}
@@ -0,0 +1,37 @@
+package com.devsuperior.dscommerce.services;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.devsuperior.dscommerce.entities.User;
+
+//Cópia imutável do usuário logado guardada no cache USERS. É compartilhada entre requisições concorrentes,
+//por isso não guarda a entidade (gerenciada por outra sessão e com coleções lazy).
+public final class AuthenticatedUser {
+
+	private final Long id;
+	private final String email;
+	private final Set<String> roles;
+
+	public AuthenticatedUser(User entity) {
+		id = entity.getId();
+		email = entity.getEmail();
+		roles = entity.getAuthorities().stream().map(x -> x.getAuthority()).collect(Collectors.toUnmodifiableSet());
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public Set<String> getRoles() {
+		return roles;
+	}
+
+	public boolean hasRole(String roleName) {
+		return roles.contains(roleName);
+	}
+}
@@ -0,0 +1,39 @@
+package com.devsuperior.dscommerce.services;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.devsuperior.dscommerce.repositories.AuthorizationRepository;
+
+//Remove periodicamente as autorizações cujos tokens já expiraram.
+//Apaga em lotes, cada um na sua transação, para não segurar locks nem carregar tudo de uma vez.
+@Component
+public class AuthorizationPurgeJob {
+
+	@Autowired
+	private AuthorizationRepository repository;
+	
+	@Value("${security.authorization.purge-batch-size}")
+	private Integer batchSize;
+	
+	@Scheduled(fixedDelayString = "${security.authorization.purge-interval}", initialDelayString = "${security.authorization.purge-interval}")
+	public int purgeExpired() {
+		Instant now = Instant.now();
+		int purged = 0;
+		List<String> ids;
+		do {
+			ids = repository.searchExpiredIds(now, PageRequest.of(0, batchSize));
+			if (!ids.isEmpty()) {
+				repository.deleteAllByIdInBatch(ids);
+				purged += ids.size();
+			}
+		} while (ids.size() == batchSize);
+		return purged;
+	}
+}
@@ -3,22 +3,43 @@ package com.devsuperior.dscommerce.services;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscommerce.config.CacheConfig;
 import com.devsuperior.dscommerce.dto.CategoryDTO;
+import com.devsuperior.dscommerce.dto.CategoryListDTO;
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.repositories.CategoryRepository;
 
 @Service
 public class CategoryService {
 
+    private static final String ALL = "'all'";
+
     @Autowired
     private CategoryRepository repository;
 
+    //A lista é imutável (toList), por isso a mesma instância pode ser compartilhada entre as requisições.
+    //A aplicação não altera categorias: mudanças feitas direto no banco aparecem no fim do cache.categories.ttl,
+    //ou na hora pelo refresh.
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES, key = ALL)
+    @Transactional(readOnly = true)
+    public CategoryListDTO findAll() {
+        return load();
+    }
+
+    //Recarrega do banco e substitui a entrada do cache
+    @CachePut(cacheNames = CacheConfig.CATEGORIES, key = ALL)
     @Transactional(readOnly = true)
-    public List<CategoryDTO> findAll() {
+    public CategoryListDTO refresh() {
+        return load();
+    }
+
+    private CategoryListDTO load() {
         List<Category> result = repository.findAll();
-        return result.stream().map(x -> new CategoryDTO(x)).toList();
+        return new CategoryListDTO(result.stream().map(x -> new CategoryDTO(x)).toList());
     }
 }
@@ -0,0 +1,325 @@
+package com.devsuperior.dscommerce.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscommerce.entities.StockLease;
+import com.devsuperior.dscommerce.entities.StockLeasePK;
+import com.devsuperior.dscommerce.repositories.OrderItemRepository;
+import com.devsuperior.dscommerce.repositories.StockLeaseRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+//Cota em memória para os produtos de inventory.hot-products, que recebem picos de pedidos (flash sale).
+//A cota já foi debitada de tb_product.stock: o pedido é admitido ou recusado só com CAS no AtomicLong do produto,
+//sem tocar na linha do produto. O rebalance repõe e devolve as cotas em lote, fora do caminho do pedido.
+//Por ser debitada antes, uma queda ou uma segunda instância só deixam unidades paradas na cota (venda a menos),
+//nunca vendem além do estoque.
+//Cada instância registra a sua cota em tb_stock_lease a cada rebalance. Na partida, as cotas que pararam de ser
+//renovadas (instância que caiu sem passar pelo returnAll) voltam para o estoque, descontado o que pode ter sido vendido.
+//Com várias instâncias o estoque fica dividido entre as cotas: uma instância pode recusar um pedido (409)
+//enquanto outra ainda tem unidades na sua cota, até o próximo rebalance devolver o excesso.
+@Component
+public class HotStockCounters {
+
+    @Value("${inventory.hot-products}")
+    private List<Long> hotProductIds;
+
+    @Value("${inventory.hot-allotment}")
+    private Integer allotment;
+
+    @Value("${inventory.hot-flush-interval}")
+    private Duration flushInterval;
+
+    @Value("${inventory.hot-lease-timeout}")
+    private Duration leaseTimeout;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StockLeaseRepository leaseRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    private final Map<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final String instanceId = UUID.randomUUID().toString();
+    //Última renovação gravada de cada cota; guardado pelo lock
+    private final Map<Long, Instant> renewedAt = new HashMap<>();
+    //Agendamento e partida não rodam o rebalance ao mesmo tempo (debitariam a cota duas vezes)
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @PostConstruct
+    void init() {
+        for (Long id : hotProductIds) {
+            counters.put(id, new AtomicLong());
+        }
+    }
+
+    //False quando o produto não é quente ou a cota não cobre a quantidade: o pedido segue pelo UPDATE condicional
+    public boolean tryReserve(Long productId, int quantity) {
+        AtomicLong counter = counters.get(productId);
+        if (counter == null || !tryTake(counter, quantity)) {
+            return false;
+        }
+        //Pedido desfeito: as unidades voltam para a cota, que continua debitada do banco
+        onRollback(() -> counter.addAndGet(quantity));
+        return true;
+    }
+
+    //Unidades de um pedido cancelado voltam para a cota após o commit; o excesso é devolvido ao banco no rebalance
+    public boolean release(Long productId, int quantity) {
+        AtomicLong counter = counters.get(productId);
+        if (counter == null) {
+            return false;
+        }
+        afterCommit(() -> counter.addAndGet(quantity));
+        return true;
+    }
+
+    public long available(Long productId) {
+        AtomicLong counter = counters.get(productId);
+        return (counter == null) ? 0L : counter.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reclaimStaleLeases();
+        rebalance();
+    }
+
+    //Cota abaixo da metade: debita do banco o que falta até inventory.hot-allotment (limitado ao estoque).
+    //Acima do dobro: devolve o excesso em batch. Tudo em uma transação, junto com a renovação das cotas em tb_stock_lease.
+    //Se já houver um rebalance em andamento, este é pulado.
+    @Scheduled(fixedDelayString = "${inventory.hot-flush-interval}", initialDelayString = "${inventory.hot-flush-interval}")
+    public void rebalance() {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            doRebalance();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void doRebalance() {
+        if (counters.isEmpty()) {
+            return;
+        }
+        //Lido antes das cotas: pedidos admitidos durante o rebalance ficam depois da renovação
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Map<Long, Long> refills = new HashMap<>();
+        Map<Long, Long> surplus = new HashMap<>();
+        counters.forEach((id, counter) -> {
+            long available = counter.get();
+            if (available < allotment / 2) {
+                refills.put(id, allotment - available);
+            }
+            else if (available > 2L * allotment) {
+                long taken = takeUpTo(counter, available - allotment);
+                if (taken > 0) {
+                    surplus.put(id, taken);
+                }
+            }
+        });
+
+        Map<Long, Long> leased = new HashMap<>();
+        List<Long> lost = new ArrayList<>();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                returnToDatabase(surplus);
+                leased.putAll(leaseFromDatabase(refills));
+                lost.addAll(renewLeases(now, leased));
+            });
+        }
+        catch (RuntimeException e) {
+            //Nada foi gravado: o excesso retirado volta para a cota
+            surplus.forEach((id, amount) -> counters.get(id).addAndGet(amount));
+            throw e;
+        }
+        counters.keySet().forEach(id -> renewedAt.put(id, now));
+        //Cota devolvida por outra instância enquanto esta estava parada: o que sobrou já voltou para o estoque
+        lost.forEach(id -> counters.get(id).set(0));
+        //Só entra na cota o que foi debitado e commitado
+        leased.forEach((id, amount) -> counters.get(id).addAndGet(amount));
+    }
+
+    //Retorna os produtos cuja cota não pôde ser renovada (já recuperada por outra instância); para eles é gravada
+    //uma cota nova só com o que foi debitado agora
+    private List<Long> renewLeases(Instant now, Map<Long, Long> leased) {
+        List<Long> lost = new ArrayList<>();
+        counters.forEach((id, counter) -> {
+            StockLeasePK key = new StockLeasePK(instanceId, id);
+            long quantity = counter.get() + leased.getOrDefault(id, 0L);
+            Instant previous = renewedAt.get(id);
+            if (previous != null && leaseRepository.renew(key, quantity, now, previous) == 1) {
+                return;
+            }
+            if (previous != null) {
+                lost.add(id);
+                quantity = leased.getOrDefault(id, 0L);
+            }
+            leaseRepository.save(new StockLease(instanceId, id, quantity, now));
+        });
+        return lost;
+    }
+
+    //Cotas de instâncias que não renovam há mais de inventory.hot-lease-timeout voltam para tb_product.stock.
+    //Não se sabe quanto a instância vendeu depois da última renovação: desconta todos os pedidos do produto
+    //desde então (de qualquer instância, com folga de um intervalo de rebalance para pedidos em andamento),
+    //então pode devolver a menos, nunca a mais. Retorna o total devolvido.
+    public long reclaimStaleLeases() {
+        Instant cutoff = Instant.now().minus(leaseTimeout);
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Map<Long, Long> unsold = new HashMap<>();
+            for (StockLease lease : leaseRepository.searchStale(cutoff)) {
+                //Outra instância subindo ao mesmo tempo pode já ter recuperado a mesma cota
+                if (leaseRepository.deleteIfNotRenewed(lease.getId(), lease.getRenewedAt()) == 0) {
+                    continue;
+                }
+                long sold = orderItemRepository.sumQuantityByProductSince(lease.getProductId(),
+                        lease.getRenewedAt().minus(flushInterval));
+                if (lease.getQuantity() > sold) {
+                    unsold.merge(lease.getProductId(), lease.getQuantity() - sold, Long::sum);
+                }
+            }
+            returnToDatabase(unsold);
+            return unsold.values().stream().mapToLong(Long::longValue).sum();
+        });
+    }
+
+    //Na parada, a cota inteira volta para tb_product.stock e os registros da instância são apagados
+    @PreDestroy
+    public void returnAll() {
+        lock.lock();
+        try {
+            Map<Long, Long> remaining = new HashMap<>();
+            counters.forEach((id, counter) -> {
+                long taken = counter.getAndSet(0);
+                if (taken > 0) {
+                    remaining.put(id, taken);
+                }
+            });
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                returnToDatabase(remaining);
+                leaseRepository.deleteByInstance(instanceId);
+            });
+            renewedAt.clear();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void returnToDatabase(Map<Long, Long> amounts) {
+        if (amounts.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>();
+        amounts.forEach((id, amount) -> args.add(new Object[] { amount, id }));
+        jdbcTemplate.batchUpdate("UPDATE tb_product SET stock = stock + ? WHERE id = ?", args);
+    }
+
+    //Debita de forma condicional, como no OrderService: se o estoque mudou entre a leitura e o UPDATE, tenta no próximo ciclo
+    private Map<Long, Long> leaseFromDatabase(Map<Long, Long> wanted) {
+        Map<Long, Long> leased = new HashMap<>();
+        if (wanted.isEmpty()) {
+            return leased;
+        }
+        Map<Long, Long> stock = new HashMap<>();
+        new NamedParameterJdbcTemplate(jdbcTemplate).query("SELECT id, stock FROM tb_product WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", wanted.keySet()),
+                rs -> { stock.put(rs.getLong("id"), rs.getLong("stock")); });
+
+        //Um UPDATE por produto, e não em batch: o número de linhas afetadas de cada um é o que decide a cota
+        //(em batch alguns drivers respondem SUCCESS_NO_INFO). São poucos produtos quentes.
+        wanted.forEach((id, amount) -> {
+            long lease = Math.min(amount, stock.getOrDefault(id, 0L));
+            if (lease > 0 && jdbcTemplate.update("UPDATE tb_product SET stock = stock - ? WHERE id = ? AND stock >= ?",
+                    lease, id, lease) == 1) {
+                leased.put(id, lease);
+            }
+        });
+        return leased;
+    }
+
+    //Tudo ou nada: nunca deixa a cota negativa
+    private static boolean tryTake(AtomicLong counter, long amount) {
+        long current;
+        do {
+            current = counter.get();
+            if (current < amount) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - amount));
+        return true;
+    }
+
+    //Retira até a quantidade pedida; retorna o que conseguiu
+    private static long takeUpTo(AtomicLong counter, long amount) {
+        long current;
+        long take;
+        do {
+            current = counter.get();
+            take = Math.min(current, amount);
+        } while (take > 0 && !counter.compareAndSet(current, current - take));
+        return Math.max(take, 0);
+    }
+
+    private static void onRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+        else {
+            action.run();
+        }
+    }
+}
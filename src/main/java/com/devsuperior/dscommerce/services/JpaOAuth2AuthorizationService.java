@@ -0,0 +1,191 @@
+package com.devsuperior.dscommerce.services;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.devsuperior.dscommerce.config.customgrant.CustomUserAuthorities;
+import com.devsuperior.dscommerce.entities.Authorization;
+import com.devsuperior.dscommerce.repositories.AuthorizationRepository;
+import com.devsuperior.dscommerce.util.TokenHash;
+
+//OAuth2AuthorizationService persistido em tb_authorization, no lugar do mapa em memória que crescia sem limite.
+//Só grava o que o password grant produz: cliente, usuário (CustomUserAuthorities), access e refresh token.
+public class JpaOAuth2AuthorizationService implements OAuth2AuthorizationService {
+
+	private static final String SEPARATOR = ",";
+	//Valor de um token quando a autorização não foi buscada por ele: o hash gravado, com um prefixo
+	//que não aparece nos tokens gerados (base64url nem JWT), para que um save posterior mantenha o mesmo hash
+	private static final String HASHED_TOKEN_PREFIX = "sha256:";
+
+	private final AuthorizationRepository repository;
+	private final RegisteredClientRepository registeredClientRepository;
+
+	public JpaOAuth2AuthorizationService(AuthorizationRepository repository, RegisteredClientRepository registeredClientRepository) {
+		Assert.notNull(repository, "repository cannot be null");
+		Assert.notNull(registeredClientRepository, "registeredClientRepository cannot be null");
+		this.repository = repository;
+		this.registeredClientRepository = registeredClientRepository;
+	}
+
+	@Transactional
+	@Override
+	public void save(OAuth2Authorization authorization) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		repository.save(toEntity(authorization));
+	}
+
+	@Transactional
+	@Override
+	public void remove(OAuth2Authorization authorization) {
+		Assert.notNull(authorization, "authorization cannot be null");
+		repository.deleteById(authorization.getId());
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public OAuth2Authorization findById(String id) {
+		Assert.hasText(id, "id cannot be empty");
+		return repository.findById(id).map(x -> toObject(x, null)).orElse(null);
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+		Assert.hasText(token, "token cannot be empty");
+		String tokenHash = TokenHash.sha256(token);
+		if (tokenType == null) {
+			return repository.searchByTokenHash(tokenHash).map(x -> toObject(x, token)).orElse(null);
+		}
+		if (OAuth2TokenType.ACCESS_TOKEN.equals(tokenType)) {
+			return repository.findByAccessTokenHash(tokenHash).map(x -> toObject(x, token)).orElse(null);
+		}
+		if (OAuth2TokenType.REFRESH_TOKEN.equals(tokenType)) {
+			return repository.findByRefreshTokenHash(tokenHash).map(x -> toObject(x, token)).orElse(null);
+		}
+		return null;
+	}
+
+	private Authorization toEntity(OAuth2Authorization authorization) {
+		Authorization entity = new Authorization();
+		entity.setId(authorization.getId());
+		entity.setClientId(registeredClient(authorization.getRegisteredClientId()).getClientId());
+		entity.setPrincipalName(authorization.getPrincipalName());
+		entity.setAuthorizationGrantType(authorization.getAuthorizationGrantType().getValue());
+		entity.setAuthorizedScopes(String.join(SEPARATOR, authorization.getAuthorizedScopes()));
+
+		Authentication principal = authorization.getAttribute(Principal.class.getName());
+		if (principal instanceof OAuth2ClientAuthenticationToken clientPrincipal) {
+			entity.setClientAuthenticationMethod(clientPrincipal.getClientAuthenticationMethod().getValue());
+		}
+		if (principal != null && principal.getDetails() instanceof CustomUserAuthorities user) {
+			entity.setUserId(user.getUserId());
+			entity.setUsername(user.getUsername());
+			entity.setAuthorities(user.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.joining(SEPARATOR)));
+		}
+
+		Instant expiresAt = null;
+		OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+		if (accessToken != null) {
+			entity.setAccessTokenHash(tokenHash(accessToken.getToken().getTokenValue()));
+			entity.setAccessTokenIssuedAt(accessToken.getToken().getIssuedAt());
+			entity.setAccessTokenExpiresAt(accessToken.getToken().getExpiresAt());
+			entity.setAccessTokenInvalidated(accessToken.isInvalidated());
+			expiresAt = accessToken.getToken().getExpiresAt();
+		}
+		OAuth2Authorization.Token<OAuth2RefreshToken> refreshToken = authorization.getRefreshToken();
+		if (refreshToken != null) {
+			entity.setRefreshTokenHash(tokenHash(refreshToken.getToken().getTokenValue()));
+			entity.setRefreshTokenIssuedAt(refreshToken.getToken().getIssuedAt());
+			entity.setRefreshTokenExpiresAt(refreshToken.getToken().getExpiresAt());
+			entity.setRefreshTokenInvalidated(refreshToken.isInvalidated());
+			expiresAt = latest(expiresAt, refreshToken.getToken().getExpiresAt());
+		}
+		entity.setExpiresAt(expiresAt);
+		return entity;
+	}
+
+	//token: valor usado na busca, devolvido como valor do access ou do refresh token de que for o hash
+	private OAuth2Authorization toObject(Authorization entity, String token) {
+		RegisteredClient registeredClient = registeredClientRepository.findByClientId(entity.getClientId());
+		if (registeredClient == null) {
+			throw new DataRetrievalFailureException("Client not found: " + entity.getClientId());
+		}
+		Set<String> scopes = StringUtils.commaDelimitedListToSet(entity.getAuthorizedScopes());
+
+		OAuth2ClientAuthenticationToken principal = new OAuth2ClientAuthenticationToken(registeredClient,
+				new ClientAuthenticationMethod(entity.getClientAuthenticationMethod() != null
+						? entity.getClientAuthenticationMethod() : ClientAuthenticationMethod.CLIENT_SECRET_BASIC.getValue()),
+				null);
+		if (entity.getUsername() != null) {
+			List<GrantedAuthority> authorities = Arrays.stream(StringUtils.commaDelimitedListToStringArray(entity.getAuthorities()))
+					.map(x -> (GrantedAuthority) new SimpleGrantedAuthority(x)).toList();
+			principal.setDetails(new CustomUserAuthorities(entity.getUserId(), entity.getUsername(), authorities));
+		}
+
+		OAuth2Authorization.Builder builder = OAuth2Authorization.withRegisteredClient(registeredClient)
+				.id(entity.getId())
+				.principalName(entity.getPrincipalName())
+				.authorizationGrantType(new AuthorizationGrantType(entity.getAuthorizationGrantType()))
+				.authorizedScopes(scopes)
+				.attribute(Principal.class.getName(), principal);
+
+		if (entity.getAccessTokenHash() != null) {
+			OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+					tokenValue(token, entity.getAccessTokenHash()), entity.getAccessTokenIssuedAt(), entity.getAccessTokenExpiresAt(), scopes);
+			builder.token(accessToken, metadata ->
+					metadata.put(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME, entity.isAccessTokenInvalidated()));
+		}
+		if (entity.getRefreshTokenHash() != null) {
+			OAuth2RefreshToken refreshToken = new OAuth2RefreshToken(tokenValue(token, entity.getRefreshTokenHash()),
+					entity.getRefreshTokenIssuedAt(), entity.getRefreshTokenExpiresAt());
+			builder.token(refreshToken, metadata ->
+					metadata.put(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME, entity.isRefreshTokenInvalidated()));
+		}
+		return builder.build();
+	}
+
+	private RegisteredClient registeredClient(String registeredClientId) {
+		RegisteredClient registeredClient = registeredClientRepository.findById(registeredClientId);
+		if (registeredClient == null) {
+			throw new DataRetrievalFailureException("Registered client not found: " + registeredClientId);
+		}
+		return registeredClient;
+	}
+
+	private static String tokenHash(String value) {
+		return value.startsWith(HASHED_TOKEN_PREFIX) ? value.substring(HASHED_TOKEN_PREFIX.length()) : TokenHash.sha256(value);
+	}
+
+	private static String tokenValue(String token, String hash) {
+		return (token != null && TokenHash.sha256(token).equals(hash)) ? token : HASHED_TOKEN_PREFIX + hash;
+	}
+
+	private static Instant latest(Instant a, Instant b) {
+		if (a == null) {
+			return b;
+		}
+		return (b == null || a.isAfter(b)) ? a : b;
+	}
+}
@@ -1,6 +1,14 @@
 package com.devsuperior.dscommerce.services;
 
 import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -12,15 +20,19 @@ import com.devsuperior.dscommerce.entities.Order;
 import com.devsuperior.dscommerce.entities.OrderItem;
 import com.devsuperior.dscommerce.entities.OrderStatus;
 import com.devsuperior.dscommerce.entities.Product;
-import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.repositories.OrderItemRepository;
 import com.devsuperior.dscommerce.repositories.OrderRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.repositories.UserRepository;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
 
 @Service
 public class OrderService {
 
+    //Status em que o pedido ainda pode ser cancelado, devolvendo o estoque reservado
+    private static final Set<OrderStatus> CANCELABLE = EnumSet.of(OrderStatus.WAITING_PAYMENT, OrderStatus.PAID);
+
     @Autowired
     private OrderRepository repository;
     
@@ -30,15 +42,21 @@ public class OrderService {
     @Autowired
     private OrderItemRepository orderItemRepository;
     
+    @Autowired
+    private UserRepository userRepository;
+    
     @Autowired
     private UserService userService;
     
     @Autowired
     private AuthService authService;
+    
+    @Autowired
+    private HotStockCounters hotStockCounters;
 
     @Transactional(readOnly = true)
     public OrderDTO findById(Long id) {
-        Order order = repository.findById(id).orElseThrow(
+        Order order = repository.searchWithItemsById(id).orElseThrow(
                 () -> new ResourceNotFoundException("Recurso não encontrado"));
         authService.validateSelfOrAdmin(order.getClient().getId());
         return new OrderDTO(order);
@@ -52,11 +70,12 @@ public class OrderService {
     	order.setMoment(Instant.now());
     	order.setStatus(OrderStatus.WAITING_PAYMENT);
     	
-    	User user = userService.authenticated();
-    	order.setClient(user);
+    	//Referência pelo id do usuário em cache, sem SELECT; a entidade do cliente não sai desta sessão
+    	order.setClient(userRepository.getReferenceById(userService.authenticated().getId()));
     	
+    	Map<Long, Product> products = findProducts(dto);
     	for (OrderItemDTO itemDto : dto.getItems()) {
-    		Product product = productRepository.getReferenceById(itemDto.getProductId());
+    		Product product = products.get(itemDto.getProductId());
     		OrderItem item = new OrderItem(order, product, itemDto.getQuantity(), product.getPrice());
     		order.getItems().add(item);
     	}
@@ -64,6 +83,73 @@ public class OrderService {
     	repository.save(order);
     	orderItemRepository.saveAll(order.getItems());
     	
+    	//Reserva por último: o lock de linha do UPDATE condicional só fica preso até o commit
+    	reserveStock(order, products);
+    	
     	return new OrderDTO(order);
 	}
+
+    @Transactional
+    public OrderDTO cancel(Long id) {
+        Order order = repository.searchWithItemsById(id).orElseThrow(
+                () -> new ResourceNotFoundException("Recurso não encontrado"));
+        authService.validateSelfOrAdmin(order.getClient().getId());
+        if (order.getStatus() == OrderStatus.CANCELED) {
+            return new OrderDTO(order);
+        }
+
+        //Só o cancelamento que efetivamente trocou o status devolve o estoque, mesmo com requisições concorrentes
+        if (repository.updateStatus(id, OrderStatus.CANCELED, CANCELABLE) == 0) {
+            //Perdeu para um cancelamento concorrente: o pedido já está cancelado e o estoque já foi devolvido por ele
+            if (repository.searchStatusById(id).filter(x -> x == OrderStatus.CANCELED).isEmpty()) {
+                throw new ConflictException("Pedido não pode ser cancelado");
+            }
+            order.setStatus(OrderStatus.CANCELED);
+            return new OrderDTO(order);
+        }
+        order.setStatus(OrderStatus.CANCELED);
+        quantitiesByProduct(order).forEach((productId, quantity) -> {
+            if (!hotStockCounters.release(productId, quantity)) {
+                productRepository.releaseStock(productId, quantity);
+            }
+        });
+        return new OrderDTO(order);
+    }
+
+    private void reserveStock(Order order, Map<Long, Product> products) {
+    	for (Map.Entry<Long, Integer> entry : quantitiesByProduct(order).entrySet()) {
+    		//Produto quente: admitido pela cota em memória; sem cota suficiente, segue pelo UPDATE condicional
+    		if (hotStockCounters.tryReserve(entry.getKey(), entry.getValue())) {
+    			continue;
+    		}
+    		//O estoque lido com o produto pode estar defasado, mas já basta para recusar um esgotado sem disputar a linha;
+    		//quem decide é o UPDATE condicional
+    		Product product = products.get(entry.getKey());
+    		if (product.getStock() < entry.getValue() || productRepository.reserveStock(entry.getKey(), entry.getValue()) == 0) {
+    			throw new ConflictException("Estoque insuficiente para o produto: " + entry.getKey());
+    		}
+    	}
+    }
+
+    //Em ordem crescente de id, para que pedidos concorrentes travem as linhas na mesma ordem e não entrem em deadlock
+    private static SortedMap<Long, Integer> quantitiesByProduct(Order order) {
+    	SortedMap<Long, Integer> quantities = new TreeMap<>();
+    	for (OrderItem item : order.getItems()) {
+    		quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+    	}
+    	return quantities;
+    }
+
+    //Busca todos os produtos do pedido em uma única consulta
+    private Map<Long, Product> findProducts(OrderDTO dto) {
+    	Set<Long> ids = dto.getItems().stream().map(x -> x.getProductId()).collect(Collectors.toSet());
+    	Map<Long, Product> products = productRepository.findAllById(ids).stream()
+    			.collect(Collectors.toMap(x -> x.getId(), Function.identity()));
+    	if (products.size() < ids.size()) {
+    		Set<Long> missing = new TreeSet<>(ids);
+    		missing.removeAll(products.keySet());
+    		throw new ResourceNotFoundException("Produto não encontrado: " + missing);
+    	}
+    	return products;
+    }
 }
@@ -0,0 +1,104 @@
+package com.devsuperior.dscommerce.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.services.exceptions.InvalidCursorException;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+
+//Posição de uma paginação por keyset sobre (chave de ordenação, id).
+//O token é opaco para o cliente: propriedade, direção, último id e último valor em Base64.
+public class ProductCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final String property;
+    private final Direction direction;
+    private final Long lastId;
+    private final String lastValue;
+
+    private ProductCursor(String property, Direction direction, Long lastId, String lastValue) {
+        this.property = property;
+        this.direction = direction;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    public static ProductCursor first(Sort sort) {
+        Sort.Order order = sort.stream().findFirst().orElse(Sort.Order.asc("id"));
+        checkProperty(order.getProperty());
+        return new ProductCursor(order.getProperty(), order.getDirection(), null, null);
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 4);
+            checkProperty(parts[0]);
+            if (parts[0].equals("price")) {
+                Double.valueOf(parts[3]);
+            }
+            return new ProductCursor(parts[0], Direction.valueOf(parts[1]), Long.valueOf(parts[2]), parts[3]);
+        }
+        catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Cursor inválido");
+        }
+    }
+
+    public String encode() {
+        String raw = property + SEPARATOR + direction + SEPARATOR + lastId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ProductCursor next(ProductMinDTO last) {
+        String value = switch (property) {
+            case "name" -> last.getName();
+            case "price" -> last.getPrice().toString();
+            default -> last.getId().toString();
+        };
+        return new ProductCursor(property, direction, last.getId(), value);
+    }
+
+    public Sort sort() {
+        Sort sort = Sort.by(direction, property);
+        return property.equals("id") ? sort : sort.and(Sort.by(direction, "id"));
+    }
+
+    //Filtro "depois da última linha lida", sem OFFSET: (chave > valor) OU (chave = valor E id > último id)
+    public Specification<Product> toSpecification() {
+        return (root, query, cb) -> {
+            if (lastId == null) {
+                return null;
+            }
+            Path<Long> id = root.get("id");
+            return switch (property) {
+                case "name" -> after(cb, root.get("name"), lastValue, id);
+                case "price" -> after(cb, root.get("price"), Double.valueOf(lastValue), id);
+                default -> beyond(cb, id, lastId);
+            };
+        };
+    }
+
+    private <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb, Path<T> path, T value, Path<Long> id) {
+        return cb.or(beyond(cb, path, value), cb.and(cb.equal(path, value), beyond(cb, id, lastId)));
+    }
+
+    private <T extends Comparable<? super T>> Predicate beyond(CriteriaBuilder cb, Path<T> path, T value) {
+        return direction.isAscending() ? cb.greaterThan(path, value) : cb.lessThan(path, value);
+    }
+
+    private static void checkProperty(String property) {
+        if (!property.equals("id") && !property.equals("name") && !property.equals("price")) {
+            throw new InvalidCursorException("Ordenação não suportada: " + property);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.devsuperior.dscommerce.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.devsuperior.dscommerce.projections.ProductNameProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+
+//Índice invertido de trigramas sobre o nome dos produtos, mantido em memória.
+//Resolve os ids candidatos de uma busca por nome sem varrer a tb_product.
+//Cada instância tem o seu índice: as alterações feitas por ela entram após o commit; as feitas por outras
+//instâncias ou direto no banco só entram no próximo rebuild (products.name-index.rebuild-interval).
+//Por isso uma busca sem candidatos é confirmada no banco pelo ProductService.
+@Component
+public class ProductNameIndex {
+
+    private static final int GRAM_SIZE = 3;
+
+    //Null até a primeira carga. A busca lê a referência uma vez e trabalha sempre sobre um índice completo.
+    private volatile Index current;
+
+    //Índice em construção e ids alterados durante a carga, guardados pelo monitor do componente
+    private Index building;
+    private final Set<Long> touched = new HashSet<>();
+
+    private final Object rebuildLock = new Object();
+
+    @Autowired
+    private ProductRepository repository;
+
+    //Monta o índice novo ao lado e troca a referência de uma vez; as buscas continuam no anterior até a troca.
+    //Alterações que chegam durante a carga são aplicadas nos dois índices e prevalecem sobre a leitura do banco,
+    //que pode ser anterior a elas.
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${products.name-index.rebuild-interval}", initialDelayString = "${products.name-index.rebuild-interval}")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            Index next = new Index();
+            synchronized (this) {
+                building = next;
+                touched.clear();
+            }
+            try {
+                for (ProductNameProjection projection : repository.searchAllNames()) {
+                    synchronized (this) {
+                        if (!touched.contains(projection.getId())) {
+                            next.index(projection.getId(), projection.getName());
+                        }
+                    }
+                }
+                synchronized (this) {
+                    current = next;
+                }
+            }
+            finally {
+                synchronized (this) {
+                    building = null;
+                    touched.clear();
+                }
+            }
+        }
+    }
+
+    //Retorna vazio quando o índice não consegue responder (termo menor que um trigrama ou índice não carregado)
+    public Optional<Set<Long>> search(String term) {
+        Index index = current;
+        String normalized = normalize(term);
+        if (index == null || normalized.length() < GRAM_SIZE) {
+            return Optional.empty();
+        }
+
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : grams(normalized)) {
+            Set<Long> ids = index.postings.get(gram);
+            if (ids == null) {
+                return Optional.of(Set.of());
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> result = new HashSet<>();
+        for (Long id : lists.get(0)) {
+            String name = index.names.get(id);
+            //Os trigramas podem coincidir fora de ordem, por isso confirma o termo completo
+            if (name != null && name.contains(normalized)) {
+                result.add(id);
+            }
+        }
+        return Optional.of(result);
+    }
+
+    public void put(Long id, String name) {
+        afterCommit(() -> apply(id, name));
+    }
+
+    public void remove(Long id) {
+        afterCommit(() -> apply(id, null));
+    }
+
+    //Name null remove o produto
+    private synchronized void apply(Long id, String name) {
+        Index index = current;
+        if (index != null) {
+            index.apply(id, name);
+        }
+        if (building != null) {
+            touched.add(id);
+            building.apply(id, name);
+        }
+    }
+
+    //Aplica a alteração somente após o commit, para que um rollback não deixe o índice divergente do banco
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+        else {
+            action.run();
+        }
+    }
+
+    private static Set<String> grams(String normalized) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toUpperCase(Locale.ROOT);
+    }
+
+    private static final class Index {
+
+        private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+        private final Map<Long, String> names = new ConcurrentHashMap<>();
+
+        void apply(Long id, String name) {
+            if (name == null) {
+                unindex(id);
+            }
+            else {
+                index(id, name);
+            }
+        }
+
+        void index(Long id, String name) {
+            String normalized = normalize(name);
+            String previous = names.put(id, normalized);
+            if (previous != null) {
+                removeGrams(id, previous);
+            }
+            for (String gram : grams(normalized)) {
+                postings.compute(gram, (k, ids) -> {
+                    Set<Long> result = (ids == null) ? ConcurrentHashMap.newKeySet() : ids;
+                    result.add(id);
+                    return result;
+                });
+            }
+        }
+
+        void unindex(Long id) {
+            String previous = names.remove(id);
+            if (previous != null) {
+                removeGrams(id, previous);
+            }
+        }
+
+        private void removeGrams(Long id, String name) {
+            for (String gram : grams(name)) {
+                postings.computeIfPresent(gram, (k, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+}
@@ -1,19 +1,31 @@
 package com.devsuperior.dscommerce.services;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscommerce.config.CacheConfig;
 import com.devsuperior.dscommerce.dto.CategoryDTO;
+import com.devsuperior.dscommerce.dto.CursorPageDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.dto.StockAdjustmentDTO;
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
 import com.devsuperior.dscommerce.services.exceptions.DatabaseException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
 
@@ -22,9 +34,19 @@ import jakarta.persistence.EntityNotFoundException;
 @Service
 public class ProductService {
 
+    //Acima deste número de candidatos o IN deixa de compensar e a busca volta para o LIKE
+    private static final int MAX_INDEXED_CANDIDATES = 1000;
+
     @Autowired
     private ProductRepository repository;
 
+    @Autowired
+    private ProductNameIndex nameIndex;
+
+    @Autowired
+    private HotStockCounters hotStockCounters;
+
+    @Cacheable(cacheNames = CacheConfig.PRODUCTS, key = "#id")
     @Transactional(readOnly = true)
     public ProductDTO findById(Long id) {
         Product product = repository.findById(id).orElseThrow(
@@ -34,24 +56,65 @@ public class ProductService {
 
     @Transactional(readOnly = true)
     public Page<ProductMinDTO> findAll(String name, Pageable pageable) {
-        Page<Product> result = repository.searchByName(name, pageable);
-        return result.map(x -> new ProductMinDTO(x));
+        Optional<Set<Long>> candidates = indexedCandidates(name);
+        if (candidates.isEmpty()) {
+            return repository.searchByName(name, pageable);
+        }
+        return repository.searchByIds(candidates.get(), pageable);
+    }
+
+    //Mesma busca do findAll, mas sem a consulta de COUNT: informa apenas se há próxima página
+    @Transactional(readOnly = true)
+    public Slice<ProductMinDTO> findAllSlice(String name, Pageable pageable) {
+        Optional<Set<Long>> candidates = indexedCandidates(name);
+        if (candidates.isEmpty()) {
+            return repository.searchSliceByName(name, pageable);
+        }
+        return repository.searchSliceByIds(candidates.get(), pageable);
+    }
+
+    //Paginação por keyset: não conta o total e busca direto a partir do cursor, sem OFFSET
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductMinDTO> findAllAfter(String name, String after, Pageable pageable) {
+        ProductCursor cursor = after.isBlank() ? ProductCursor.first(pageable.getSort()) : ProductCursor.decode(after);
+
+        Optional<Set<Long>> candidates = indexedCandidates(name);
+        Specification<Product> filter = candidates.isPresent()
+                ? (root, query, cb) -> root.get("id").in(candidates.get())
+                : (root, query, cb) -> cb.like(cb.upper(root.get("name")), cb.upper(cb.literal("%" + name + "%")));
+
+        int size = pageable.getPageSize();
+        List<ProductMinDTO> result = repository.searchMin(filter.and(cursor.toSpecification()), cursor.sort(), size + 1);
+
+        String next = null;
+        if (result.size() > size) {
+            result = result.subList(0, size);
+            next = cursor.next(result.get(size - 1)).encode();
+        }
+        return new CursorPageDTO<>(result, next);
     }
 
     @Transactional
     public ProductDTO insert(ProductDTO dto) {
         Product entity = new Product();
         copyDtoToEntity(dto, entity);
+        //No update o campo é ignorado: depois do insert o estoque só muda pelos UPDATEs condicionais
+        if (dto.getStock() != null) {
+            entity.setStock(dto.getStock());
+        }
         entity = repository.save(entity);
+        nameIndex.put(entity.getId(), entity.getName());
         return new ProductDTO(entity);
     }
 
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, key = "#id")
     @Transactional
     public ProductDTO update(Long id, ProductDTO dto) {
         try {
             Product entity = repository.getReferenceById(id);
             copyDtoToEntity(dto, entity);
             entity = repository.save(entity);
+            nameIndex.put(entity.getId(), entity.getName());
             return new ProductDTO(entity);
         }
         catch (EntityNotFoundException e) {
@@ -59,6 +122,22 @@ public class ProductService {
         }
     }
 
+    //Entrada vai sempre para tb_product.stock; num produto quente o rebalance leva para a cota o que faltar.
+    //Baixa sai do banco e, se o banco não cobrir, da cota em memória (produto quente): com a cota debitada antes,
+    //baixar só do banco recusaria unidades que ainda existem, e baixar por fora da cota deixaria a cota vender além do estoque
+    @Transactional
+    public void adjustStock(Long id, StockAdjustmentDTO dto) {
+        if (!repository.existsById(id)) {
+            throw new ResourceNotFoundException("Recurso não encontrado");
+        }
+        int quantity = dto.getQuantity();
+        if (repository.adjustStock(id, quantity) == 0
+                && (quantity > 0 || !hotStockCounters.tryReserve(id, -quantity))) {
+            throw new ConflictException("Estoque insuficiente para o produto: " + id);
+        }
+    }
+
+    @CacheEvict(cacheNames = CacheConfig.PRODUCTS, key = "#id")
     @Transactional(propagation = Propagation.SUPPORTS)
     public void delete(Long id) {
     	if (!repository.existsById(id)) {
@@ -66,12 +145,19 @@ public class ProductService {
     	}
     	try {
             repository.deleteById(id);    		
+            nameIndex.remove(id);
     	}
         catch (DataIntegrityViolationException e) {
             throw new DatabaseException("Falha de integridade referencial");
         }
     }
 
+    //Sem candidatos no índice, a busca vai para o LIKE: o índice desta instância pode ainda não ter um produto
+    //criado ou renomeado por outra instância, e uma página vazia seria uma resposta errada
+    private Optional<Set<Long>> indexedCandidates(String name) {
+        return nameIndex.search(name).filter(ids -> !ids.isEmpty() && ids.size() <= MAX_INDEXED_CANDIDATES);
+    }
+
     private void copyDtoToEntity(ProductDTO dto, Product entity) {
         entity.setName(dto.getName());
         entity.setDescription(dto.getDescription());
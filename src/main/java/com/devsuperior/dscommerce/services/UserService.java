@@ -3,12 +3,21 @@ package com.devsuperior.dscommerce.services;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import com.devsuperior.dscommerce.config.CacheConfig;
 import com.devsuperior.dscommerce.dto.UserDTO;
 import com.devsuperior.dscommerce.entities.Role;
 import com.devsuperior.dscommerce.entities.User;
@@ -17,7 +26,9 @@ import com.devsuperior.dscommerce.repositories.UserRepository;
 import com.devsuperior.dscommerce.util.CustomUserUtil;
 
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
+
+	private static final String AUTHENTICATED_USER = UserService.class.getName() + ".AUTHENTICATED_USER";
 
 	@Autowired
 	private UserRepository repository;
@@ -25,37 +36,115 @@ public class UserService implements UserDetailsService {
 	@Autowired
 	private CustomUserUtil customUserUtil;
 	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	//Cada password grant passa por aqui. O cache USER_DETAILS guarda só id, email e perfis (até o TTL ou o updatePassword);
+	//o hash da senha é lido a cada login pela chave única de email e não fica no heap compartilhado.
 	@Override
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-		
+		User cached = userDetailsCache().get(username, User.class);
+		if (cached == null) {
+			User user = searchUserAndRoles(username);
+			userDetailsCache().put(username, copy(user, null));
+			return user;
+		}
+		String password = repository.searchPasswordByEmail(username).orElseThrow(
+				() -> new UsernameNotFoundException("Email not found"));
+		return copy(cached, password);
+	}
+	
+	//Usado no grant refresh_token, que não verifica senha: só os perfis, direto do cache enquanto ele valer
+	public UserDetails loadUserAuthorities(String username) throws UsernameNotFoundException {
+		User cached = userDetailsCache().get(username, User.class);
+		if (cached == null) {
+			cached = copy(searchUserAndRoles(username), null);
+			userDetailsCache().put(username, cached);
+		}
+		return copy(cached, null);
+	}
+	
+	private User searchUserAndRoles(String username) {
 		List<UserDetailsProjection> result = repository.searchUserAndRolesByEmail(username);
 		if (result.size() == 0) {
 			throw new UsernameNotFoundException("Email not found");
 		}
 		
 		User user = new User();
+		user.setId(result.get(0).getUserId());
 		user.setEmail(result.get(0).getUsername());
 		user.setPassword(result.get(0).getPassword());
 		for (UserDetailsProjection projection : result) {
 			user.addRole(new Role(projection.getRoleId(), projection.getAuthority()));
 		}
-		
 		return user;
 	}
 	
-	protected User authenticated() {
+	//A entrada do cache é compartilhada entre logins: cada um recebe a sua cópia
+	private static User copy(User user, String password) {
+		User copy = new User();
+		copy.setId(user.getId());
+		copy.setEmail(user.getEmail());
+		copy.setPassword(password);
+		for (GrantedAuthority role : user.getAuthorities()) {
+			copy.addRole((Role) role);
+		}
+		return copy;
+	}
+	
+	//Chamado no login quando o hash precisa ser atualizado; o evict acontece depois do commit.
+	//É a única escrita em usuários da aplicação; alterações feitas direto no banco aparecem no fim dos TTLs.
+	@Caching(evict = {
+			@CacheEvict(cacheNames = CacheConfig.USERS, key = "#user.username"),
+			@CacheEvict(cacheNames = CacheConfig.USER_DETAILS, key = "#user.username")})
+	@Transactional
+	@Override
+	public UserDetails updatePassword(UserDetails user, String newPassword) {
+		repository.updatePassword(user.getUsername(), newPassword);
+		return org.springframework.security.core.userdetails.User.withUserDetails(user).password(newPassword).build();
+	}
+	
+	//Memoriza o usuário na requisição atual e, entre requisições, no cache compartilhado com TTL curto.
+	//O cache guarda só a cópia imutável (id, email, perfis), nunca a entidade.
+	protected AuthenticatedUser authenticated() {
 		try {
 			String username = customUserUtil.getLoggedUsername();
-			return repository.findByEmail(username).get();
+			RequestAttributes request = RequestContextHolder.getRequestAttributes();
+			if (request != null && request.getAttribute(AUTHENTICATED_USER, RequestAttributes.SCOPE_REQUEST) instanceof AuthenticatedUser user
+					&& user.getEmail().equals(username)) {
+				return user;
+			}
+			//Consulta fora do get(key, loader): o loader roda dentro do lock do ConcurrentHashMap e a espera
+			//pelo banco prenderia a carrier thread com threads virtuais. Cargas duplicadas na corrida são inofensivas.
+			Cache cache = usersCache();
+			AuthenticatedUser user = cache.get(username, AuthenticatedUser.class);
+			if (user == null) {
+				user = new AuthenticatedUser(repository.findByEmail(username).get());
+				cache.put(username, user);
+			}
+			if (request != null) {
+				request.setAttribute(AUTHENTICATED_USER, user, RequestAttributes.SCOPE_REQUEST);
+			}
+			return user;
 		}
 		catch (Exception e) {
 			throw new UsernameNotFoundException("Invalid user");
 		}
 	}
 	
+	private Cache usersCache() {
+		return cacheManager.getCache(CacheConfig.USERS);
+	}
+	
+	private Cache userDetailsCache() {
+		return cacheManager.getCache(CacheConfig.USER_DETAILS);
+	}
+	
+	//Perfil completo lido na transação: nome, telefone e data de nascimento não ficam no cache
 	@Transactional(readOnly = true)
 	public UserDTO getMe() {
-		User entity = authenticated();
+		User entity = repository.findById(authenticated().getId()).orElseThrow(
+				() -> new UsernameNotFoundException("Invalid user"));
 		return new UserDTO(entity);
 	}
 }
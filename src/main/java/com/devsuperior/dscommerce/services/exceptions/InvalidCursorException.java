@@ -0,0 +1,9 @@
+package com.devsuperior.dscommerce.services.exceptions;
+
+@SuppressWarnings("serial")
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String msg) {
+        super(msg);
+    }
+}
@@ -1,5 +1,7 @@
 package com.devsuperior.dscommerce.util;
 
+import java.util.Optional;
+
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -13,4 +15,17 @@ public class CustomUserUtil {
 		Jwt jwtPrincipal = (Jwt) authentication.getPrincipal();
 		return jwtPrincipal.getClaim("username");
 	}
+	
+	//Vazio para tokens emitidos antes da claim user_id existir
+	public Optional<Long> getLoggedUserId() {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		Jwt jwtPrincipal = (Jwt) authentication.getPrincipal();
+		Object userId = jwtPrincipal.getClaim("user_id");
+		return (userId instanceof Number number) ? Optional.of(number.longValue()) : Optional.empty();
+	}
+	
+	public boolean loggedHasAuthority(String authority) {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		return authentication.getAuthorities().stream().anyMatch(x -> x.getAuthority().equals(authority));
+	}
 }
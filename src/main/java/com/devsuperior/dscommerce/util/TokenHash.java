@@ -0,0 +1,23 @@
+package com.devsuperior.dscommerce.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+//SHA-256 em hexadecimal do valor de um token: chave curta para índices e caches, sem guardar o token em si
+public final class TokenHash {
+
+	private TokenHash() {
+	}
+
+	public static String sha256(String token) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
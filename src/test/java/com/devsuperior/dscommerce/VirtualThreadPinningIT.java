@@ -0,0 +1,139 @@
+package com.devsuperior.dscommerce;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscommerce.tests.PinningRecorder;
+import com.devsuperior.dscommerce.tests.TokenUtil;
+
+import jdk.jfr.consumer.RecordedEvent;
+
+//Guia para o modo spring.threads.virtual.enabled=true: falha, com a pilha, se algum caminho bloqueante
+//(driver JDBC, synchronized no nosso código ou em bibliotecas) prender a carrier thread.
+//O pool do Hikari pequeno força as threads virtuais a esperarem por conexão durante a carga.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+		"spring.threads.virtual.enabled=true",
+		"spring.datasource.hikari.maximum-pool-size=4",
+		"spring.jpa.show-sql=false"})
+public class VirtualThreadPinningIT {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private TokenUtil tokenUtil;
+
+	@Autowired
+	private ServletWebServerApplicationContext context;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	public void tomcatShouldHandleRequestsOnVirtualThreads() {
+
+		TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+
+		Assertions.assertInstanceOf(VirtualThreadExecutor.class,
+				webServer.getTomcat().getConnector().getProtocolHandler().getExecutor());
+	}
+
+	@Test
+	public void concurrentRequestsShouldNotPinCarrierThreads() throws Throwable {
+
+		String adminToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+		String clientToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+		List<String> paths = List.of("/users/me", "/orders/1", "/products?page=0&size=12", "/products/3", "/categories");
+		HttpClient client = HttpClient.newHttpClient();
+		List<Future<Integer>> statuses = new ArrayList<>();
+
+		List<RecordedEvent> pinned = PinningRecorder.pinnedDuring(() -> {
+			try (ExecutorService executor = Executors.newFixedThreadPool(32)) {
+				for (int i = 0; i < 200; i++) {
+					HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + paths.get(i % paths.size())))
+							.header("Authorization", "Bearer " + (i % 2 == 0 ? adminToken : clientToken))
+							.build();
+					statuses.add(executor.submit(() -> client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode()));
+				}
+			}
+		});
+
+		for (Future<Integer> status : statuses) {
+			Assertions.assertEquals(200, status.get());
+		}
+		Assertions.assertTrue(pinned.isEmpty(), PinningRecorder.describe(pinned));
+	}
+
+	//Escritas concorrentes na mesma linha: as sessões do H2 esperam pelo lock da linha
+	@Test
+	public void contendedH2WritesShouldNotPinCarrierThreads() throws Throwable {
+
+		List<RecordedEvent> pinned = PinningRecorder.pinnedDuring(() -> {
+			try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+				for (int i = 0; i < 32; i++) {
+					executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+						jdbcTemplate.update("UPDATE tb_product SET price = price WHERE id = 1");
+						sleep(5);
+					}));
+				}
+			}
+		});
+
+		Assertions.assertTrue(pinned.isEmpty(), PinningRecorder.describe(pinned));
+	}
+
+	//Controle: garante que a gravação JFR realmente detecta o bloqueio dentro de synchronized
+	@Test
+	public void recorderShouldDetectBlockingInsideSynchronized() throws Throwable {
+
+		Object lock = new Object();
+
+		List<RecordedEvent> pinned = PinningRecorder.pinnedDuring(() -> {
+			Thread.ofVirtual().start(() -> {
+				synchronized (lock) {
+					sleep(20);
+				}
+			}).join();
+		});
+
+		Assertions.assertFalse(pinned.isEmpty());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.devsuperior.dscommerce.entities.PooledSequenceGenerator;
+
+//Compara inserts em massa no H2 local da mesma entidade (mesmas colunas de tb_product) com cada gerador de id:
+//IDENTITY ou sequence pooled-lo com o bloco de PooledSequenceGenerator. O mapeamento é por orm.xml, então só o
+//gerador muda entre os dois casos; o batch de JDBC é o mesmo da aplicação.
+//Executar pelo main() com o classpath de teste (ex.: pela IDE).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGenerationBenchmark {
+
+	@Param({"identity", "pooledSequence"})
+	private String generator;
+
+	@Param({"100", "1000"})
+	private int rows;
+
+	private SessionFactory sessionFactory;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Configuration configuration = new Configuration()
+				.setProperty("hibernate.connection.url", "jdbc:h2:mem:id_benchmark_" + generator + ";DB_CLOSE_DELAY=-1")
+				.setProperty("hibernate.connection.username", "sa")
+				.setProperty("hibernate.hbm2ddl.auto", "create-drop")
+				.setProperty("hibernate.jdbc.batch_size", "50")
+				.setProperty("hibernate.order_inserts", "true")
+				.setProperty("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+		configuration.addInputStream(new ByteArrayInputStream(mapping().getBytes(StandardCharsets.UTF_8)));
+		sessionFactory = configuration.buildSessionFactory();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		sessionFactory.close();
+	}
+
+	@Benchmark
+	public void insert() {
+		try (Session session = sessionFactory.openSession()) {
+			session.beginTransaction();
+			for (int i = 0; i < rows; i++) {
+				session.persist(new BenchmarkProduct("Produto " + i, 10.0));
+			}
+			session.flush();
+			session.getTransaction().rollback();
+		}
+	}
+
+	private String mapping() {
+		String id = generator.equals("identity")
+				? "<generated-value strategy=\"IDENTITY\"/>"
+				: "<generated-value strategy=\"SEQUENCE\" generator=\"seq_product\"/>"
+						+ "<sequence-generator name=\"seq_product\" sequence-name=\"seq_product\" allocation-size=\""
+						+ PooledSequenceGenerator.ALLOCATION_SIZE + "\"/>";
+		return "<entity-mappings xmlns=\"https://jakarta.ee/xml/ns/persistence/orm\" version=\"3.1\">"
+				+ "<entity class=\"" + BenchmarkProduct.class.getName() + "\" access=\"FIELD\">"
+				+ "<table name=\"tb_product\"/>"
+				+ "<attributes>"
+				+ "<id name=\"id\">" + id + "</id>"
+				+ "<basic name=\"name\"/>"
+				+ "<basic name=\"description\"><column column-definition=\"TEXT\"/></basic>"
+				+ "<basic name=\"price\"/>"
+				+ "<basic name=\"imgUrl\"/>"
+				+ "</attributes>"
+				+ "</entity>"
+				+ "</entity-mappings>";
+	}
+
+	public static class BenchmarkProduct {
+
+		private Long id;
+		private String name;
+		private String description;
+		private Double price;
+		private String imgUrl;
+
+		public BenchmarkProduct() {
+		}
+
+		public BenchmarkProduct(String name, Double price) {
+			this.name = name;
+			this.price = price;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(IdGenerationBenchmark.class.getSimpleName()).build()).run();
+	}
+}
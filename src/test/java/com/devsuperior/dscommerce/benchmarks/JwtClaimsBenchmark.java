@@ -0,0 +1,128 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+
+import com.devsuperior.dscommerce.config.CompactRoleClaims;
+import com.devsuperior.dscommerce.config.JwkKeyRing;
+import com.devsuperior.dscommerce.config.KeyRingJwtEncoder;
+
+//Tamanho do header Authorization e custo de validar o token e extrair as authorities (decode) ou só de
+//extrair as authorities de um Jwt já validado (convert) em cada
+//security.jwt.claims-format, com as claims que o tokenCustomizer gera para um admin.
+//O decoder não passa pelo CachingJwtDecoder (pior caso: token ainda não visto).
+//Os tamanhos saem no resultado do decode como decode:headerLength e decode:payloadLength (JSON das claims).
+//Executar pelo main() com o classpath de teste.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtClaimsBenchmark {
+
+	@Param({"full", "compact"})
+	private String format;
+
+	private JwtDecoder decoder;
+	private JwtAuthenticationConverter converter;
+	private String token;
+	private Jwt jwt;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", List.of(), "", "RS256");
+		CompactRoleClaims compactRoleClaims = new CompactRoleClaims(List.of("ROLE_CLIENT", "ROLE_ADMIN"));
+		List<String> authorities = List.of("ROLE_CLIENT", "ROLE_ADMIN");
+
+		JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+				.issuer("http://localhost:8080")
+				.subject("myclientid")
+				.issuedAt(Instant.now())
+				.expiresAt(Instant.now().plusSeconds(86400))
+				.claim("scope", List.of("read", "write"))
+				.claim("username", "alex@gmail.com")
+				.claim("user_id", 2L);
+		if (format.equals("compact")) {
+			claims.claim(CompactRoleClaims.CLAIM, compactRoleClaims.encode(authorities));
+		}
+		else {
+			claims.audience(List.of("myclientid")).notBefore(Instant.now()).claim("authorities", authorities);
+		}
+		token = new KeyRingJwtEncoder(keyRing).encode(JwtEncoderParameters
+				.from(JwsHeader.with(SignatureAlgorithm.RS256).build(), claims.build())).getTokenValue();
+
+		//Mesma configuração do ResourceServerConfig
+		JwtGrantedAuthoritiesConverter grantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+		grantedAuthoritiesConverter.setAuthoritiesClaimName("authorities");
+		grantedAuthoritiesConverter.setAuthorityPrefix("");
+		converter = new JwtAuthenticationConverter();
+		converter.setJwtGrantedAuthoritiesConverter(jwt -> {
+			Object roles = jwt.getClaim(CompactRoleClaims.CLAIM);
+			if (roles instanceof Number mask) {
+				return compactRoleClaims.decode(mask.longValue());
+			}
+			return grantedAuthoritiesConverter.convert(jwt);
+		});
+		decoder = keyRing.jwtDecoder();
+		jwt = decoder.decode(token);
+	}
+
+	@Benchmark
+	public AbstractAuthenticationToken decode(TokenSize size) {
+		return converter.convert(decoder.decode(token));
+	}
+
+	@Benchmark
+	public AbstractAuthenticationToken convert() {
+		return converter.convert(jwt);
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class TokenSize {
+
+		public long headerLength;
+		public long payloadLength;
+
+		//Gravado no fim da iteração: o JMH zera os contadores logo após o @Setup
+		@TearDown(Level.Iteration)
+		public void record(JwtClaimsBenchmark benchmark) {
+			headerLength = ("Bearer " + benchmark.token).length();
+			payloadLength = Base64.getUrlDecoder().decode(benchmark.token.split("\\.")[1]).length;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(JwtClaimsBenchmark.class.getSimpleName()).build()).run();
+	}
+}
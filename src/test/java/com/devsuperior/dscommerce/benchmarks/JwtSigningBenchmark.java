@@ -0,0 +1,100 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+
+import com.devsuperior.dscommerce.config.JwkKeyRing;
+import com.devsuperior.dscommerce.config.KeyRingJwtEncoder;
+
+//Emissão e validação de um access token por algoritmo de security.jwk.algorithm, com as mesmas claims
+//do tokenCustomizer. O verify usa o decoder sem o CachingJwtDecoder (pior caso: token ainda não visto).
+//O tamanho do token sai no resultado do sign como sign:tokenLength.
+//Executar pelo main() com o classpath de teste.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+	@Param({"RS256", "ES256", "EdDSA"})
+	private String algorithm;
+
+	private KeyRingJwtEncoder encoder;
+	private JwtDecoder decoder;
+	private JwtEncoderParameters parameters;
+	private String token;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", List.of(), "", algorithm);
+		encoder = new KeyRingJwtEncoder(keyRing);
+		decoder = keyRing.jwtDecoder();
+		JwtClaimsSet claims = JwtClaimsSet.builder()
+				.issuer("http://localhost:8080")
+				.subject("myclientid")
+				.audience(List.of("myclientid"))
+				.issuedAt(Instant.now())
+				.expiresAt(Instant.now().plusSeconds(86400))
+				.claim("scope", List.of("read", "write"))
+				.claim("authorities", List.of("ROLE_CLIENT", "ROLE_ADMIN"))
+				.claim("username", "alex@gmail.com")
+				.claim("user_id", 2L)
+				.build();
+		parameters = JwtEncoderParameters.from(JwsHeader.with(SignatureAlgorithm.RS256).build(), claims);
+		token = encoder.encode(parameters).getTokenValue();
+	}
+
+	@Benchmark
+	public Jwt sign(TokenSize size) {
+		return encoder.encode(parameters);
+	}
+
+	@Benchmark
+	public Jwt verify() {
+		return decoder.decode(token);
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class TokenSize {
+
+		public long tokenLength;
+
+		//O JMH zera os contadores depois do @Setup da iteração; por isso o valor é gravado no fim dela
+		@TearDown(Level.Iteration)
+		public void record(JwtSigningBenchmark benchmark) {
+			tokenLength = benchmark.token.length();
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(JwtSigningBenchmark.class.getSimpleName()).build()).run();
+	}
+}
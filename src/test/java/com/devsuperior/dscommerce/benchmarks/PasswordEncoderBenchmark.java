@@ -0,0 +1,64 @@
+package com.devsuperior.dscommerce.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+//Custo de um matches() por configuração do encoder, para escolher security.password-encoder.*
+//conforme o SLO de login no hardware de produção. Executar pelo main() com o classpath de teste.
+//O tempo por operação multiplicado pela fila do pool de verificação dá a latência de pior caso do login.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+	private static final String RAW_PASSWORD = "123456";
+	
+	@Param({"bcrypt-10", "bcrypt-11", "bcrypt-12", "bcrypt-13", "pbkdf2"})
+	private String encoder;
+	
+	private PasswordEncoder passwordEncoder;
+	private String encodedPassword;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		Map<String, PasswordEncoder> encoders = Map.of(
+				"bcrypt-10", new BCryptPasswordEncoder(10),
+				"bcrypt-11", new BCryptPasswordEncoder(11),
+				"bcrypt-12", new BCryptPasswordEncoder(12),
+				"bcrypt-13", new BCryptPasswordEncoder(13),
+				"pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+		passwordEncoder = encoders.get(encoder);
+		encodedPassword = passwordEncoder.encode(RAW_PASSWORD);
+	}
+	
+	@Benchmark
+	public boolean matches() {
+		return passwordEncoder.matches(RAW_PASSWORD, encodedPassword);
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(PasswordEncoderBenchmark.class.getSimpleName()).build()).run();
+	}
+}
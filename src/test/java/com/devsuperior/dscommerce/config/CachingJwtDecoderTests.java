@@ -0,0 +1,97 @@
+package com.devsuperior.dscommerce.config;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CachingJwtDecoderTests {
+
+	private JwtDecoder delegate;
+	private SimpleMeterRegistry meterRegistry;
+	private CachingJwtDecoder decoder;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		delegate = Mockito.mock(JwtDecoder.class);
+		meterRegistry = new SimpleMeterRegistry();
+		decoder = new CachingJwtDecoder(delegate, 100L, meterRegistry);
+	}
+
+	@Test
+	public void decodeShouldVerifyTokenOnlyOnceWhileItIsValid() {
+
+		Jwt jwt = jwt("valid", Instant.now().plusSeconds(60));
+		Mockito.when(delegate.decode("valid")).thenReturn(jwt);
+
+		Assertions.assertSame(jwt, decoder.decode("valid"));
+		Assertions.assertSame(jwt, decoder.decode("valid"));
+
+		Mockito.verify(delegate, Mockito.times(1)).decode("valid");
+		Assertions.assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "jwtDecoder").tag("result", "hit")
+				.functionCounter().count());
+	}
+
+	@Test
+	public void decodeShouldNotCacheExpiredToken() {
+
+		Mockito.when(delegate.decode("expired")).thenReturn(jwt("expired", Instant.now().minusSeconds(1)));
+
+		decoder.decode("expired");
+		decoder.decode("expired");
+
+		Mockito.verify(delegate, Mockito.times(2)).decode("expired");
+		Assertions.assertEquals(0L, decoder.estimatedSize());
+	}
+
+	@Test
+	public void decodeShouldNotCacheTokenWithoutExpiration() {
+
+		Mockito.when(delegate.decode("no-exp")).thenReturn(jwt("no-exp", null));
+
+		decoder.decode("no-exp");
+		decoder.decode("no-exp");
+
+		Mockito.verify(delegate, Mockito.times(2)).decode("no-exp");
+	}
+
+	@Test
+	public void decodeShouldPropagateAndNotCacheInvalidToken() {
+
+		Mockito.when(delegate.decode("invalid")).thenThrow(new BadJwtException("invalid signature"));
+
+		Assertions.assertThrows(BadJwtException.class, () -> decoder.decode("invalid"));
+		Assertions.assertThrows(BadJwtException.class, () -> decoder.decode("invalid"));
+
+		Mockito.verify(delegate, Mockito.times(2)).decode("invalid");
+		Assertions.assertEquals(0L, decoder.estimatedSize());
+	}
+
+	@Test
+	public void invalidateAllShouldForceVerificationAgain() {
+
+		Mockito.when(delegate.decode("valid")).thenReturn(jwt("valid", Instant.now().plusSeconds(60)));
+
+		decoder.decode("valid");
+		decoder.invalidateAll();
+		decoder.decode("valid");
+
+		Mockito.verify(delegate, Mockito.times(2)).decode("valid");
+	}
+
+	private static Jwt jwt(String token, Instant expiresAt) {
+		return Jwt.withTokenValue(token)
+				.header("alg", "RS256")
+				.claim("username", "maria@gmail.com")
+				.issuedAt(Instant.now().minusSeconds(120))
+				.expiresAt(expiresAt)
+				.build();
+	}
+}
@@ -0,0 +1,60 @@
+package com.devsuperior.dscommerce.config;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+public class CompactRoleClaimsTests {
+
+	private CompactRoleClaims compactRoleClaims;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		compactRoleClaims = new CompactRoleClaims(List.of("ROLE_CLIENT", "ROLE_ADMIN"));
+	}
+
+	@Test
+	public void encodeShouldSetOneBitPerRoleInListOrder() {
+
+		Assertions.assertEquals(0L, compactRoleClaims.encode(List.of()));
+		Assertions.assertEquals(1L, compactRoleClaims.encode(List.of("ROLE_CLIENT")));
+		Assertions.assertEquals(2L, compactRoleClaims.encode(List.of("ROLE_ADMIN")));
+		Assertions.assertEquals(3L, compactRoleClaims.encode(List.of("ROLE_ADMIN", "ROLE_CLIENT")));
+	}
+
+	@Test
+	public void encodeShouldReturnNullWhenRoleHasNoBit() {
+
+		Assertions.assertNull(compactRoleClaims.encode(List.of("ROLE_CLIENT", "ROLE_OPERATOR")));
+	}
+
+	@Test
+	public void decodeShouldReturnAuthoritiesOfEncodedMask() {
+
+		Long mask = compactRoleClaims.encode(List.of("ROLE_CLIENT", "ROLE_ADMIN"));
+
+		List<String> authorities = compactRoleClaims.decode(mask).stream().map(GrantedAuthority::getAuthority).toList();
+
+		Assertions.assertEquals(List.of("ROLE_CLIENT", "ROLE_ADMIN"), authorities);
+		Assertions.assertSame(compactRoleClaims.decode(mask), compactRoleClaims.decode(mask));
+	}
+
+	@Test
+	public void decodeShouldIgnoreBitsWithoutRole() {
+
+		List<String> authorities = compactRoleClaims.decode(2L | 1L << 5).stream().map(GrantedAuthority::getAuthority).toList();
+
+		Assertions.assertEquals(List.of("ROLE_ADMIN"), authorities);
+	}
+
+	@Test
+	public void constructorShouldRejectDuplicatedRoles() {
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> {
+			new CompactRoleClaims(List.of("ROLE_CLIENT", "ROLE_CLIENT"));
+		});
+	}
+}
@@ -0,0 +1,218 @@
+package com.devsuperior.dscommerce.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JwkKeyRingTests {
+
+	private static final List<String> PEM_LOCATIONS = List.of(
+			"classpath:jwk/2026-09.pem", "classpath:jwk/2026-10.pem", "classpath:jwk/retired-2026-08.pem");
+	
+	@Test
+	public void constructorShouldLoadAllPemKeysAndSignWithGreatestPrivateKid() {
+		
+		JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", PEM_LOCATIONS, "", "RS256");
+		
+		Assertions.assertEquals(3, keyRing.getKids().size());
+		Assertions.assertTrue(keyRing.getKids().contains("retired-2026-08"));
+		Assertions.assertEquals("2026-10", keyRing.getSigningKid());
+	}
+	
+	@Test
+	public void tokenSignedWithPreviousKeyShouldBeValidatedByNodeSigningWithNewKey() {
+		
+		JwkKeyRing oldNode = new JwkKeyRing("", "", "PKCS12", PEM_LOCATIONS, "2026-09", "RS256");
+		JwkKeyRing newNode = new JwkKeyRing("", "", "PKCS12", PEM_LOCATIONS, "", "RS256");
+		
+		String token = encode(oldNode);
+		JwtDecoder decoder = newNode.jwtDecoder();
+		Jwt jwt = decoder.decode(token);
+		
+		Assertions.assertEquals("2026-09", jwt.getHeaders().get("kid"));
+		Assertions.assertEquals("maria@gmail.com", jwt.getClaimAsString("username"));
+	}
+	
+	@Test
+	public void constructorShouldLoadKeystoreAliasesAsKids() {
+		
+		JwkKeyRing keyRing = new JwkKeyRing("classpath:jwk/keys.p12", "changeit", "PKCS12", List.of(), "", "RS256");
+		
+		Assertions.assertEquals(List.of("2026-10"), keyRing.getKids());
+		Assertions.assertEquals("2026-10", keyRing.getSigningKid());
+		Assertions.assertNotNull(keyRing.jwtDecoder().decode(encode(keyRing)));
+	}
+	
+	@Test
+	public void constructorShouldThrowWhenSigningKidHasNoPrivateKey() {
+		
+		Assertions.assertThrows(IllegalStateException.class, () -> {
+			new JwkKeyRing("", "", "PKCS12", PEM_LOCATIONS, "retired-2026-08", "RS256");
+		});
+	}
+	
+	@Test
+	public void constructorShouldGenerateEphemeralKeyWhenNothingIsConfigured() {
+		
+		JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", List.of(""), "", "RS256");
+		
+		Assertions.assertEquals(1, keyRing.getKids().size());
+		Assertions.assertNotNull(keyRing.jwtDecoder().decode(encode(keyRing)));
+	}
+	
+	@Test
+	public void reloadShouldKeepCurrentKeysWhenFilesAreInvalid() {
+		
+		JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", List.of("classpath:jwk/2026-10.pem"), "", "RS256");
+		
+		ReflectionTestUtils.setField(keyRing, "pemLocations", List.of("classpath:jwk/missing.pem"));
+		keyRing.reload();
+		
+		Assertions.assertEquals("2026-10", keyRing.getSigningKid());
+	}
+	
+	@Test
+	public void reloadShouldNotifyListenersWhenKidIsRemoved() {
+		
+		JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", PEM_LOCATIONS, "", "RS256");
+		AtomicInteger notifications = new AtomicInteger();
+		keyRing.addRemovalListener(notifications::incrementAndGet);
+		
+		keyRing.reload();
+		Assertions.assertEquals(0, notifications.get());
+		
+		ReflectionTestUtils.setField(keyRing, "pemLocations", List.of("classpath:jwk/2026-09.pem", "classpath:jwk/2026-10.pem"));
+		keyRing.reload();
+		Assertions.assertEquals(1, notifications.get());
+	}
+	
+	@Test
+	public void reloadShouldKeepCurrentSigningKeyWhenNewerKeyIsPublished() {
+		
+		JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", List.of("classpath:jwk/2026-09.pem"), "", "RS256");
+		
+		ReflectionTestUtils.setField(keyRing, "pemLocations", List.of("classpath:jwk/2026-09.pem", "classpath:jwk/2026-10.pem"));
+		keyRing.reload();
+		
+		Assertions.assertTrue(keyRing.getKids().contains("2026-10"));
+		Assertions.assertEquals("2026-09", keyRing.getSigningKid());
+	}
+	
+	@Test
+	public void reloadShouldSwitchSigningKeyWhenKidFileChanges(@TempDir Path dir) throws IOException {
+		
+		Path kidFile = dir.resolve("signing-kid");
+		Files.writeString(kidFile, "2026-09\n");
+		JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", PEM_LOCATIONS, "", "file:" + kidFile, Duration.ZERO, "RS256");
+		Assertions.assertEquals("2026-09", keyRing.getSigningKid());
+		
+		Files.writeString(kidFile, "2026-10\n");
+		keyRing.reload();
+		
+		Assertions.assertEquals("2026-10", keyRing.getSigningKid());
+	}
+	
+	@Test
+	public void constructorShouldNotPromoteKeyFileNewerThanPromotionDelay(@TempDir Path dir) throws IOException {
+		
+		Path previous = copy("2026-09.pem", dir);
+		Path recent = copy("2026-10.pem", dir);
+		Files.setLastModifiedTime(previous, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+		List<String> locations = List.of("file:" + previous, "file:" + recent);
+		
+		JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", locations, "", "", Duration.ofMinutes(5), "RS256");
+		
+		Assertions.assertEquals("2026-09", keyRing.getSigningKid());
+		
+		Files.setLastModifiedTime(recent, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+		Assertions.assertEquals("2026-10", new JwkKeyRing("", "", "PKCS12", locations, "", "", Duration.ofMinutes(5), "RS256").getSigningKid());
+	}
+	
+	@Test
+	public void constructorShouldSignWithKeyMatchingConfiguredAlgorithm() {
+		
+		List<String> locations = List.of("classpath:jwk/2026-10.pem", "classpath:jwk/ec-2026-11.pem", "classpath:jwk/ed-2026-11.pem");
+		
+		Assertions.assertEquals("2026-10", new JwkKeyRing("", "", "PKCS12", locations, "", "RS256").getSigningKid());
+		Assertions.assertEquals("ec-2026-11", new JwkKeyRing("", "", "PKCS12", locations, "", "ES256").getSigningKid());
+		Assertions.assertEquals("ed-2026-11", new JwkKeyRing("", "", "PKCS12", locations, "", "EdDSA").getSigningKid());
+	}
+	
+	@Test
+	public void tokenSignedWithEcOrEd25519ShouldBeValidatedByNodeSigningWithRsa() {
+		
+		List<String> locations = List.of("classpath:jwk/2026-10.pem", "classpath:jwk/ec-2026-11.pem", "classpath:jwk/ed-2026-11.pem");
+		JwkKeyRing rsaNode = new JwkKeyRing("", "", "PKCS12", locations, "", "RS256");
+		
+		for (String algorithm : List.of("ES256", "EdDSA")) {
+			JwkKeyRing node = new JwkKeyRing("", "", "PKCS12", locations, "", algorithm);
+			Jwt jwt = rsaNode.jwtDecoder().decode(encode(node));
+			
+			Assertions.assertEquals(algorithm, jwt.getHeaders().get("alg").toString());
+			Assertions.assertEquals("maria@gmail.com", jwt.getClaimAsString("username"));
+			Assertions.assertNotNull(jwt.getExpiresAt());
+		}
+	}
+	
+	@Test
+	public void constructorShouldGenerateEphemeralKeyOfConfiguredAlgorithm() {
+		
+		for (String algorithm : List.of("RS256", "ES256", "EdDSA")) {
+			JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", List.of(), "", algorithm);
+			Jwt jwt = keyRing.jwtDecoder().decode(encode(keyRing));
+			
+			Assertions.assertEquals(algorithm, jwt.getHeaders().get("alg").toString());
+		}
+	}
+	
+	@Test
+	public void constructorShouldThrowWhenAlgorithmIsNotSignature() {
+		
+		Assertions.assertThrows(IllegalStateException.class, () -> {
+			new JwkKeyRing("", "", "PKCS12", List.of(), "", "HS256");
+		});
+	}
+	
+	@Test
+	public void constructorShouldThrowWhenNoKeyMatchesAlgorithm() {
+		
+		Assertions.assertThrows(IllegalStateException.class, () -> {
+			new JwkKeyRing("", "", "PKCS12", PEM_LOCATIONS, "", "EdDSA");
+		});
+	}
+	
+	private static Path copy(String name, Path dir) throws IOException {
+		Path target = dir.resolve(name);
+		Files.copy(new ClassPathResource("jwk/" + name).getInputStream(), target, StandardCopyOption.REPLACE_EXISTING);
+		return target;
+	}
+	
+	private static String encode(JwkKeyRing keyRing) {
+		KeyRingJwtEncoder encoder = new KeyRingJwtEncoder(keyRing);
+		JwtClaimsSet claims = JwtClaimsSet.builder()
+				.subject("myclientid")
+				.claim("username", "maria@gmail.com")
+				.issuedAt(Instant.now())
+				.expiresAt(Instant.now().plusSeconds(60))
+				.build();
+		return encoder.encode(JwtEncoderParameters.from(JwsHeader.with(SignatureAlgorithm.RS256).build(), claims)).getTokenValue();
+	}
+}
@@ -0,0 +1,208 @@
+package com.devsuperior.dscommerce.config.customgrant;
+
+import static org.mockito.ArgumentMatchers.any;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContext;
+import org.springframework.security.oauth2.server.authorization.context.AuthorizationServerContextHolder;
+import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
+import org.springframework.security.oauth2.server.authorization.token.JwtGenerator;
+
+import com.devsuperior.dscommerce.config.AuthorizationServerConfig;
+import com.devsuperior.dscommerce.config.JwkKeyRing;
+import com.devsuperior.dscommerce.config.KeyRingJwtEncoder;
+import com.devsuperior.dscommerce.entities.User;
+import com.devsuperior.dscommerce.tests.UserFactory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CustomPasswordAuthenticationProviderTests {
+
+	private static final int USERS = 50;
+	private static final int GRANTS = 2000;
+	private static final String PASSWORD = "123456";
+
+	private RegisteredClient registeredClient;
+	private InMemoryOAuth2AuthorizationService authorizationService;
+	private PasswordVerificationPool passwordVerificationPool;
+	private CustomPasswordAuthenticationProvider provider;
+	private JwtDecoder jwtDecoder;
+	private JwtGenerator tokenGenerator;
+	private UserDetailsService userDetailsService;
+	private AuthorizationServerContext authorizationServerContext;
+
+	@SuppressWarnings("deprecation")
+	@BeforeEach
+	void setUp() throws Exception {
+		registeredClient = RegisteredClient.withId("1")
+				.clientId("myclientid")
+				.scope("read")
+				.scope("write")
+				.authorizationGrantType(new AuthorizationGrantType("password"))
+				.build();
+
+		AuthorizationServerSettings settings = AuthorizationServerSettings.builder().issuer("http://localhost:8080").build();
+		authorizationServerContext = new AuthorizationServerContext() {
+			@Override
+			public String getIssuer() {
+				return settings.getIssuer();
+			}
+
+			@Override
+			public AuthorizationServerSettings getAuthorizationServerSettings() {
+				return settings;
+			}
+		};
+
+		Map<String, User> users = new HashMap<>();
+		for (long id = 1; id <= USERS; id++) {
+			User user = UserFactory.createCustomClientUser(id, "user" + id + "@gmail.com");
+			user.setPassword(PASSWORD);
+			users.put(user.getEmail(), user);
+		}
+		userDetailsService = username -> {
+			User user = users.get(username);
+			if (user == null) {
+				throw new UsernameNotFoundException("Email not found");
+			}
+			return user;
+		};
+
+		//EdDSA só para acelerar os milhares de assinaturas do teste de concorrência
+		JwkKeyRing keyRing = new JwkKeyRing("", "", "PKCS12", List.of(), "", "EdDSA");
+		tokenGenerator = new JwtGenerator(new KeyRingJwtEncoder(keyRing));
+		tokenGenerator.setJwtCustomizer(new AuthorizationServerConfig().tokenCustomizer());
+		jwtDecoder = keyRing.jwtDecoder();
+
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		authorizationService = new InMemoryOAuth2AuthorizationService();
+		passwordVerificationPool = new PasswordVerificationPool(8, GRANTS, meterRegistry);
+		provider = new CustomPasswordAuthenticationProvider(authorizationService, tokenGenerator, userDetailsService,
+				NoOpPasswordEncoder.getInstance(), passwordVerificationPool, meterRegistry);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		passwordVerificationPool.shutdown();
+	}
+
+	@Test
+	public void authenticateShouldIssueTokenForPresentedUser() {
+
+		OAuth2AccessTokenAuthenticationToken result = authenticate("user7@gmail.com", PASSWORD);
+
+		Jwt jwt = jwtDecoder.decode(result.getAccessToken().getTokenValue());
+		Assertions.assertEquals("user7@gmail.com", jwt.getClaimAsString("username"));
+		Assertions.assertEquals(7L, ((Number) jwt.getClaim("user_id")).longValue());
+		Assertions.assertNotNull(authorizationService.findByToken(result.getAccessToken().getTokenValue(), OAuth2TokenType.ACCESS_TOKEN));
+	}
+
+	@Test
+	public void authenticateShouldThrowWhenPasswordDoesNotMatch() {
+
+		Assertions.assertThrows(OAuth2AuthenticationException.class, () -> authenticate("user7@gmail.com", "wrong"));
+	}
+
+	@Test
+	public void authenticateShouldThrowWhenUserDoesNotExist() {
+
+		Assertions.assertThrows(OAuth2AuthenticationException.class, () -> authenticate("nobody@gmail.com", PASSWORD));
+	}
+
+	@Test
+	public void authenticateShouldSkipHashUpgradeWhenPoolIsSaturated() {
+
+		PasswordEncoder legacyEncoder = new PasswordEncoder() {
+			@Override
+			public String encode(CharSequence rawPassword) {
+				return rawPassword.toString();
+			}
+
+			@Override
+			public boolean matches(CharSequence rawPassword, String encodedPassword) {
+				return rawPassword.toString().equals(encodedPassword);
+			}
+
+			@Override
+			public boolean upgradeEncoding(String encodedPassword) {
+				return true;
+			}
+		};
+		PasswordVerificationPool saturatedPool = Mockito.mock(PasswordVerificationPool.class);
+		Mockito.when(saturatedPool.matches(any(), any(), any())).thenReturn(true);
+		Mockito.when(saturatedPool.encode(any(), any())).thenThrow(
+				new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE)));
+		UserDetailsPasswordService userDetailsPasswordService = Mockito.mock(UserDetailsPasswordService.class);
+		provider = new CustomPasswordAuthenticationProvider(authorizationService, tokenGenerator, userDetailsService,
+				legacyEncoder, saturatedPool, new SimpleMeterRegistry());
+		provider.setUserDetailsPasswordService(userDetailsPasswordService);
+
+		OAuth2AccessTokenAuthenticationToken result = authenticate("user7@gmail.com", PASSWORD);
+
+		Assertions.assertNotNull(result.getAccessToken());
+		Mockito.verify(userDetailsPasswordService, Mockito.never()).updatePassword(any(), any());
+	}
+
+	//Milhares de password grants simultâneos com usuários intercalados: cada token deve trazer o próprio usuário
+	@Test
+	public void concurrentAuthenticateShouldNeverMixUsersBetweenRequests() throws Exception {
+
+		List<Future<Jwt>> results = new ArrayList<>();
+		try (ExecutorService executor = Executors.newFixedThreadPool(32)) {
+			for (int i = 0; i < GRANTS; i++) {
+				String username = "user" + (i % USERS + 1) + "@gmail.com";
+				results.add(executor.submit(() -> jwtDecoder.decode(authenticate(username, PASSWORD).getAccessToken().getTokenValue())));
+			}
+		}
+
+		for (int i = 0; i < GRANTS; i++) {
+			Jwt jwt = results.get(i).get();
+			Assertions.assertEquals("user" + (i % USERS + 1) + "@gmail.com", jwt.getClaimAsString("username"));
+			Assertions.assertEquals(i % USERS + 1, ((Number) jwt.getClaim("user_id")).longValue());
+		}
+	}
+
+	private OAuth2AccessTokenAuthenticationToken authenticate(String username, String password) {
+		OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(registeredClient,
+				ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+		CustomPasswordAuthenticationToken grant = new CustomPasswordAuthenticationToken(clientPrincipal, null,
+				Map.of("username", username, "password", password));
+		//Papel do OAuth2TokenEndpointFilter: o contexto do servidor de autorização é por requisição
+		AuthorizationServerContextHolder.setContext(authorizationServerContext);
+		try {
+			return (OAuth2AccessTokenAuthenticationToken) provider.authenticate(grant);
+		}
+		finally {
+			AuthorizationServerContextHolder.resetContext();
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.devsuperior.dscommerce.config.customgrant;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PasswordVerificationPoolTests {
+
+	private SimpleMeterRegistry meterRegistry;
+	private PasswordVerificationPool pool;
+	private PasswordEncoder passwordEncoder;
+	private CountDownLatch release;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		meterRegistry = new SimpleMeterRegistry();
+		pool = new PasswordVerificationPool(1, 1, meterRegistry);
+		passwordEncoder = new BCryptPasswordEncoder(4);
+		release = new CountDownLatch(1);
+	}
+	
+	@AfterEach
+	void tearDown() throws Exception {
+		release.countDown();
+		pool.shutdown();
+	}
+	
+	@Test
+	public void matchesShouldDelegateToPasswordEncoder() {
+		
+		String encoded = passwordEncoder.encode("123456");
+		
+		Assertions.assertTrue(pool.matches(passwordEncoder, "123456", encoded));
+		Assertions.assertFalse(pool.matches(passwordEncoder, "654321", encoded));
+	}
+	
+	@Test
+	public void encodeShouldDelegateToPasswordEncoder() {
+		
+		String encoded = pool.encode(passwordEncoder, "123456");
+		
+		Assertions.assertTrue(passwordEncoder.matches("123456", encoded));
+	}
+	
+	@Test
+	public void matchesShouldRejectWithTemporarilyUnavailableWhenPoolAndQueueAreFull() throws Exception {
+		
+		CountDownLatch running = new CountDownLatch(1);
+		PasswordEncoder blockingEncoder = new BlockingPasswordEncoder(running, release);
+		
+		//Uma verificação ocupa a thread e outra ocupa a única vaga da fila
+		CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> pool.matches(blockingEncoder, "a", "a"));
+		Assertions.assertTrue(running.await(5, TimeUnit.SECONDS));
+		CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> pool.matches(blockingEncoder, "b", "b"));
+		waitForQueueDepth(1);
+		
+		OAuth2AuthenticationException exception = Assertions.assertThrows(OAuth2AuthenticationException.class, () -> {
+			pool.matches(blockingEncoder, "c", "c");
+		});
+		
+		Assertions.assertEquals(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE, exception.getError().getErrorCode());
+		Assertions.assertEquals(1.0, meterRegistry.get("dscommerce.password.verification.rejected").counter().count());
+		
+		release.countDown();
+		Assertions.assertTrue(first.get(5, TimeUnit.SECONDS));
+		Assertions.assertTrue(second.get(5, TimeUnit.SECONDS));
+	}
+	
+	private void waitForQueueDepth(double depth) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (meterRegistry.get("dscommerce.password.verification.queue").gauge().value() < depth) {
+			Assertions.assertTrue(System.nanoTime() < deadline, "queue never reached expected depth");
+			Thread.sleep(5);
+		}
+	}
+	
+	private static class BlockingPasswordEncoder implements PasswordEncoder {
+		
+		private final CountDownLatch running;
+		private final CountDownLatch release;
+		
+		BlockingPasswordEncoder(CountDownLatch running, CountDownLatch release) {
+			this.running = running;
+			this.release = release;
+		}
+
+		@Override
+		public String encode(CharSequence rawPassword) {
+			return rawPassword.toString();
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			running.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return rawPassword.toString().equals(encodedPassword);
+		}
+	}
+}
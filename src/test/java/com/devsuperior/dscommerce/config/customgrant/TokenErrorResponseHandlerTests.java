@@ -0,0 +1,38 @@
+package com.devsuperior.dscommerce.config.customgrant;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+
+public class TokenErrorResponseHandlerTests {
+
+	private TokenErrorResponseHandler handler = new TokenErrorResponseHandler();
+	
+	@Test
+	public void onAuthenticationFailureShouldReturnTooManyRequestsWhenTemporarilyUnavailable() throws Exception {
+		
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		handler.onAuthenticationFailure(new MockHttpServletRequest(), response,
+				new OAuth2AuthenticationException(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE));
+		
+		Assertions.assertEquals(429, response.getStatus());
+		Assertions.assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+		Assertions.assertTrue(response.getContentAsString().contains(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE));
+	}
+	
+	@Test
+	public void onAuthenticationFailureShouldReturnBadRequestForOtherErrors() throws Exception {
+		
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		
+		handler.onAuthenticationFailure(new MockHttpServletRequest(), response,
+				new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_GRANT));
+		
+		Assertions.assertEquals(400, response.getStatus());
+	}
+}
@@ -0,0 +1,91 @@
+package com.devsuperior.dscommerce.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscommerce.tests.TokenUtil;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class CategoryControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    private String adminToken, clientToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        adminToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+        clientToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+    }
+
+    @Test
+    public void findAllShouldReturnListWithETagAndCacheControl() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/categories")
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.length()").value(3));
+        result.andExpect(header().string(HttpHeaders.ETAG, org.hamcrest.Matchers.startsWith("\"")));
+        result.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"));
+    }
+
+    @Test
+    public void findAllShouldReturnNotModifiedWhenETagMatches() throws Exception {
+
+        String etag = mockMvc.perform(get("/categories"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        ResultActions result = mockMvc
+                .perform(get("/categories")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isNotModified());
+        result.andExpect(content().string(""));
+    }
+
+    @Test
+    public void refreshShouldReturnListWhenAdminLogged() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(post("/categories/refresh")
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.length()").value(3));
+    }
+
+    @Test
+    public void refreshShouldReturnForbiddenWhenClientLogged() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(post("/categories/refresh")
+                .header("Authorization", "Bearer " + clientToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,102 @@
+package com.devsuperior.dscommerce.controllers;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.devsuperior.dscommerce.config.CompactRoleClaims;
+import com.devsuperior.dscommerce.tests.TokenUtil;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "security.jwt.claims-format=compact")
+public class CompactClaimsTokenIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private JwtAuthenticationConverter jwtAuthenticationConverter;
+
+    @Test
+    public void tokenShouldCarryRolesAsBitmaskWithoutRedundantClaims() throws Exception {
+
+        String adminToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+
+        Jwt jwt = jwtDecoder.decode(adminToken);
+
+        Assertions.assertEquals(3L, ((Number) jwt.getClaim(CompactRoleClaims.CLAIM)).longValue());
+        Assertions.assertFalse(jwt.hasClaim("authorities"));
+        Assertions.assertFalse(jwt.hasClaim("aud"));
+        Assertions.assertFalse(jwt.hasClaim("nbf"));
+        Assertions.assertEquals("alex@gmail.com", jwt.getClaimAsString("username"));
+    }
+
+    @Test
+    public void compactTokenShouldAuthorizeByRole() throws Exception {
+
+        String adminToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+        String clientToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+
+        mockMvc.perform(get("/actuator/metrics")
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/metrics")
+                .header("Authorization", "Bearer " + clientToken))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void compactTokenShouldIdentifyLoggedUser() throws Exception {
+
+        String clientToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+
+        ResultActions result = mockMvc
+                .perform(get("/users/me")
+                .header("Authorization", "Bearer " + clientToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.email").value("maria@gmail.com"));
+    }
+
+    @Test
+    public void converterShouldStillAcceptTokensWithAuthoritiesList() {
+
+        Jwt jwt = Jwt.withTokenValue("full")
+                .header("alg", "RS256")
+                .subject("myclientid")
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .claim("authorities", List.of("ROLE_CLIENT", "ROLE_ADMIN"))
+                .build();
+
+        List<String> authorities = jwtAuthenticationConverter.convert(jwt).getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority).toList();
+
+        Assertions.assertEquals(List.of("ROLE_CLIENT", "ROLE_ADMIN"), authorities);
+    }
+}
@@ -0,0 +1,62 @@
+package com.devsuperior.dscommerce.controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.devsuperior.dscommerce.tests.TokenUtil;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = "security.jwk.algorithm=EdDSA")
+public class EdDsaTokenIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Test
+    public void tokenShouldBeSignedWithEdDsaAndAuthorizeByRole() throws Exception {
+
+        String adminToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+
+        String header = new String(Base64.getUrlDecoder().decode(adminToken.split("\\.")[0]), StandardCharsets.UTF_8);
+        Assertions.assertTrue(header.contains("\"alg\":\"EdDSA\""));
+
+        ResultActions result = mockMvc
+                .perform(get("/orders/{id}", 1L)
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.id").value(1L));
+    }
+
+    @Test
+    public void tokenShouldIdentifyLoggedUser() throws Exception {
+
+        String clientToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+
+        ResultActions result = mockMvc
+                .perform(get("/users/me")
+                .header("Authorization", "Bearer " + clientToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.email").value("maria@gmail.com"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.devsuperior.dscommerce.controllers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.devsuperior.dscommerce.tests.TokenUtil;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class OrderControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    private String adminToken, clientToken;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long clientOrderId, otherOrderId, waitingPaymentOrderId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        adminToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+        clientToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        clientOrderId = 1L;
+        otherOrderId = 2L;
+        waitingPaymentOrderId = 3L;
+    }
+
+    @Test
+    public void findByIdShouldReturnOrderWhenAdminLogged() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/orders/{id}", clientOrderId)
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.id").value(clientOrderId));
+        result.andExpect(jsonPath("$.client.name").value("Maria Brown"));
+    }
+
+    @Test
+    public void findByIdShouldReturnOrderWhenClientOwnsOrder() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/orders/{id}", clientOrderId)
+                .header("Authorization", "Bearer " + clientToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.id").value(clientOrderId));
+    }
+
+    @Test
+    public void findByIdShouldReturnForbiddenWhenClientDoesNotOwnOrder() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(get("/orders/{id}", otherOrderId)
+                .header("Authorization", "Bearer " + clientToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void cancelShouldCancelOrderAndReleaseStockWhenClientOwnsOrder() throws Exception {
+
+        Integer stockBefore = jdbcTemplate.queryForObject("SELECT stock FROM tb_product WHERE id = 1", Integer.class);
+
+        ResultActions result = mockMvc
+                .perform(put("/orders/{id}/cancel", waitingPaymentOrderId)
+                .header("Authorization", "Bearer " + clientToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.status").value("CANCELED"));
+        Integer stockAfter = jdbcTemplate.queryForObject("SELECT stock FROM tb_product WHERE id = 1", Integer.class);
+        Assertions.assertEquals(stockBefore + 1, stockAfter);
+    }
+
+    @Test
+    public void cancelShouldReturnConflictWhenOrderWasDelivered() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(put("/orders/{id}/cancel", otherOrderId)
+                .header("Authorization", "Bearer " + adminToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isConflict());
+    }
+
+    @Test
+    public void cancelShouldReturnForbiddenWhenClientDoesNotOwnOrder() throws Exception {
+
+        ResultActions result = mockMvc
+                .perform(put("/orders/{id}/cancel", otherOrderId)
+                .header("Authorization", "Bearer " + clientToken)
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isForbidden());
+    }
+}
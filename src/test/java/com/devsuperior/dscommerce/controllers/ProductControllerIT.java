@@ -1,11 +1,23 @@
 package com.devsuperior.dscommerce.controllers;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.json.JacksonJsonParser;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -17,11 +29,16 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderItemDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.StockAdjustmentDTO;
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.services.OrderService;
 import com.devsuperior.dscommerce.tests.TokenUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -36,6 +53,12 @@ public class ProductControllerIT {
 
     @Autowired
     private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
     
     private String productName;
     private String adminToken, clientToken, invalidToken;
@@ -84,6 +107,55 @@ public class ProductControllerIT {
         result.andExpect(jsonPath("$.content[0].id").value(1L));
     }
 
+    @Test
+    public void findAllShouldReturnSliceWithoutTotalsWhenWithTotalIsFalse() throws Exception {
+
+        ResultActions result = mockMvc
+                   .perform(get("/products?withTotal=false&size=10")
+                   .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content.length()").value(10));
+        result.andExpect(jsonPath("$.last").value(false));
+        result.andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    public void findAllAfterShouldWalkAllProductsByNameWithoutRepeating() throws Exception {
+
+        List<Object> names = new ArrayList<>();
+        String after = "";
+        int pages = 0;
+        do {
+            ResultActions result = mockMvc
+                       .perform(get("/products?after={after}&size=10&sort=name", after)
+                       .accept(MediaType.APPLICATION_JSON));
+            result.andExpect(status().isOk());
+
+            Map<String, Object> body = new JacksonJsonParser().parseMap(result.andReturn().getResponse().getContentAsString());
+            for (Object item : (List<?>) body.get("content")) {
+                names.add(((Map<?, ?>) item).get("name"));
+            }
+            after = (String) body.get("next");
+            pages++;
+        } while (after != null);
+
+        Assertions.assertEquals(3, pages);
+        Assertions.assertEquals(25, names.size());
+        Assertions.assertEquals("Macbook Pro", names.get(0));
+        Assertions.assertEquals("The Lord of the Rings", names.get(24));
+    }
+
+    @Test
+    public void findAllAfterShouldReturnBadRequestWhenCursorIsInvalid() throws Exception {
+
+        ResultActions result = mockMvc
+                   .perform(get("/products?after=xyz")
+                   .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
     @Test
     public void insertShouldReturnProductDTOWhenAdminLoggedDataIsValid() throws Exception {
         
@@ -97,12 +169,66 @@ public class ProductControllerIT {
                    .andDo(MockMvcResultHandlers.print());
 
         result.andExpect(status().isCreated());
-        result.andExpect(jsonPath("$.id").value(26L));
+        result.andExpect(jsonPath("$.id").exists());
         result.andExpect(jsonPath("$.name").value("PlayStation 5"));
         result.andExpect(jsonPath("$.price").value(1250.0));
         result.andExpect(jsonPath("$.imgUrl").exists());
         //Como categoria é uma lista acesso o primeiro elemento para validar
         result.andExpect(jsonPath("$.categories[0].id").value(2L)); 
+
+        //O id depende de quantos inserts já consumiram a sequence: confere lendo o produto de volta
+        Long productId = objectMapper.readTree(result.andReturn().getResponse().getContentAsString()).get("id").asLong();
+        mockMvc.perform(get("/products/{id}", productId).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(productId))
+                .andExpect(jsonPath("$.name").value("PlayStation 5"));
+    }
+
+    @Test
+    public void insertShouldAcceptInitialStockSoNewProductCanBeOrdered() throws Exception {
+
+        ObjectNode jsonBody = objectMapper.valueToTree(productDTO);
+        jsonBody.put("stock", 3);
+
+        ResultActions result = mockMvc
+                   .perform(post("/products")
+                   .header("Authorization", "Bearer " + adminToken)
+                   .content(jsonBody.toString()).contentType(MediaType.APPLICATION_JSON)
+                   .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isCreated());
+        result.andExpect(jsonPath("$.stock").doesNotExist());
+        Long productId = objectMapper.readTree(result.andReturn().getResponse().getContentAsString()).get("id").asLong();
+
+        //POST /orders não desserializa OrderDTO (sem construtor padrão): o pedido vai direto pelo service
+        Jwt jwt = Jwt.withTokenValue("token").header("alg", "none")
+                .claim("username", "maria@gmail.com").claim("user_id", 1L).build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new JwtAuthenticationToken(jwt, AuthorityUtils.createAuthorityList("ROLE_CLIENT")));
+        try {
+            OrderDTO order = new OrderDTO(null, Instant.now(), null, null, null);
+            order.getItems().add(new OrderItemDTO(productId, null, null, 2, null));
+
+            Assertions.assertNotNull(orderService.insert(order).getId());
+            Assertions.assertEquals(1, jdbcTemplate.queryForObject("SELECT stock FROM tb_product WHERE id = ?", Integer.class, productId));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Test
+    public void insertShouldReturnUnprocessableEntityWhenAdminLoggedNegativeStock() throws Exception {
+
+        ObjectNode jsonBody = objectMapper.valueToTree(productDTO);
+        jsonBody.put("stock", -1);
+
+        ResultActions result = mockMvc
+                   .perform(post("/products")
+                   .header("Authorization", "Bearer " + adminToken)
+                   .content(jsonBody.toString()).contentType(MediaType.APPLICATION_JSON)
+                   .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isUnprocessableEntity());
     }
 
     @Test
@@ -231,6 +357,60 @@ public class ProductControllerIT {
         //result.andExpect(jsonPath("$.categories[0].id").value(2L)); 
     }
 
+    @Test
+    public void adjustStockShouldReturnNoContentAndRestockWhenAdminLogged() throws Exception {
+
+        Integer before = jdbcTemplate.queryForObject("SELECT stock FROM tb_product WHERE id = 1", Integer.class);
+        String jsonBody = objectMapper.writeValueAsString(new StockAdjustmentDTO(5));
+
+        ResultActions result = mockMvc
+                   .perform(post("/products/1/stock")
+                   .header("Authorization", "Bearer " + adminToken)
+                   .content(jsonBody).contentType(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isNoContent());
+        Assertions.assertEquals(before + 5, jdbcTemplate.queryForObject("SELECT stock FROM tb_product WHERE id = 1", Integer.class));
+    }
+
+    @Test
+    public void adjustStockShouldReturnConflictWhenWriteOffExceedsStock() throws Exception {
+
+        Integer before = jdbcTemplate.queryForObject("SELECT stock FROM tb_product WHERE id = 1", Integer.class);
+        String jsonBody = objectMapper.writeValueAsString(new StockAdjustmentDTO(-(before + 1)));
+
+        ResultActions result = mockMvc
+                   .perform(post("/products/1/stock")
+                   .header("Authorization", "Bearer " + adminToken)
+                   .content(jsonBody).contentType(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isConflict());
+        Assertions.assertEquals(before, jdbcTemplate.queryForObject("SELECT stock FROM tb_product WHERE id = 1", Integer.class));
+    }
+
+    @Test
+    public void adjustStockShouldReturnUnprocessableEntityWhenQuantityIsMissing() throws Exception {
+
+        ResultActions result = mockMvc
+                   .perform(post("/products/1/stock")
+                   .header("Authorization", "Bearer " + adminToken)
+                   .content("{}").contentType(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    public void adjustStockShouldReturnForbiddenWhenClientLogged() throws Exception {
+
+        String jsonBody = objectMapper.writeValueAsString(new StockAdjustmentDTO(5));
+
+        ResultActions result = mockMvc
+                   .perform(post("/products/1/stock")
+                   .header("Authorization", "Bearer " + clientToken)
+                   .content(jsonBody).contentType(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isForbidden());
+    }
+
     @Test
     public void deleteShouldReturnOkWhenAdminLoggedValidProduct() throws Exception {
         
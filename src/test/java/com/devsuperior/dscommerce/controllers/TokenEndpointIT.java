@@ -0,0 +1,226 @@
+package com.devsuperior.dscommerce.controllers;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.test.web.servlet.MockMvc;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import com.devsuperior.dscommerce.config.CacheConfig;
+import com.devsuperior.dscommerce.repositories.UserRepository;
+import com.devsuperior.dscommerce.tests.TokenUtil;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TokenEndpointIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OAuth2AuthorizationService authorizationService;
+
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${security.client-id}")
+    private String clientId;
+
+    @Value("${security.client-secret}")
+    private String clientSecret;
+
+    @Test
+    public void tokenIssuanceShouldUpgradeLegacyHashAndKeepPasswordValid() throws Exception {
+
+        String original = userRepository.searchPasswordByEmail("alex@gmail.com").orElseThrow();
+        try {
+            tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+
+            String password = userRepository.searchPasswordByEmail("alex@gmail.com").orElseThrow();
+            Assertions.assertTrue(password.startsWith("{bcrypt}$2a$10$"));
+            Assertions.assertNotNull(tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456"));
+        } finally {
+            //O contexto e o banco são compartilhados com os outros testes: alex volta ao hash legado
+            jdbcTemplate.update("UPDATE tb_user SET password = ? WHERE email = ?", original, "alex@gmail.com");
+        }
+    }
+
+    @Test
+    public void tokenIssuanceShouldPersistAuthorizationFindableByAccessToken() throws Exception {
+
+        String accessToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+
+        OAuth2Authorization authorization = authorizationService.findByToken(accessToken, OAuth2TokenType.ACCESS_TOKEN);
+        Assertions.assertNotNull(authorization);
+        Assertions.assertEquals(accessToken, authorization.getAccessToken().getToken().getTokenValue());
+    }
+
+    @Test
+    public void tokenIssuanceShouldRecordLookupPasswordAndSigningPhases() throws Exception {
+
+        long before = count("signing");
+
+        tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+
+        Assertions.assertEquals(before + 1, count("signing"));
+        Assertions.assertTrue(count("lookup") >= 1);
+        Assertions.assertTrue(count("password") >= 1);
+    }
+
+    @Test
+    public void tokenIssuanceShouldReturnShortLivedAccessTokenAndRefreshToken() throws Exception {
+
+        Map<String, Object> tokens = tokenUtil.obtainTokens(mockMvc, "maria@gmail.com", "123456");
+
+        Assertions.assertNotNull(tokens.get("refresh_token"));
+        Assertions.assertTrue(((Number) tokens.get("expires_in")).longValue() <= 900);
+
+        OAuth2Authorization authorization = authorizationService.findByToken(tokens.get("refresh_token").toString(),
+                OAuth2TokenType.REFRESH_TOKEN);
+        Assertions.assertNotNull(authorization);
+    }
+
+    @Test
+    public void refreshGrantShouldIssueNewAccessTokenWithoutPasswordVerification() throws Exception {
+
+        Map<String, Object> tokens = tokenUtil.obtainTokens(mockMvc, "maria@gmail.com", "123456");
+        long passwordChecks = count("password");
+
+        Map<String, Object> refreshed = tokenUtil.refreshTokens(mockMvc, tokens.get("refresh_token").toString());
+
+        Assertions.assertEquals(passwordChecks, count("password"));
+        String accessToken = refreshed.get("access_token").toString();
+        Assertions.assertNotEquals(tokens.get("access_token"), accessToken);
+
+        Jwt jwt = jwtDecoder.decode(accessToken);
+        Assertions.assertEquals("maria@gmail.com", jwt.getClaimAsString("username"));
+        Assertions.assertEquals(1L, ((Number) jwt.getClaim("user_id")).longValue());
+        Assertions.assertEquals(List.of("ROLE_CLIENT"), jwt.getClaimAsStringList("authorities"));
+
+        mockMvc.perform(get("/users/me")
+                .header("Authorization", "Bearer " + accessToken)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("maria@gmail.com"));
+    }
+
+    @Test
+    public void refreshGrantShouldRejectUnknownRefreshToken() throws Exception {
+
+        expectInvalidGrant("unknown");
+    }
+
+    @Test
+    public void refreshGrantShouldRotateRefreshTokenAndRejectPreviousOne() throws Exception {
+
+        String refreshToken = tokenUtil.obtainTokens(mockMvc, "maria@gmail.com", "123456").get("refresh_token").toString();
+
+        String rotated = tokenUtil.refreshTokens(mockMvc, refreshToken).get("refresh_token").toString();
+
+        Assertions.assertNotEquals(refreshToken, rotated);
+        expectInvalidGrant(refreshToken);
+        Assertions.assertNotNull(tokenUtil.refreshTokens(mockMvc, rotated).get("access_token"));
+    }
+
+    @Test
+    public void refreshGrantShouldApplyRoleChangesAfterUserDetailsCacheEntryExpires() throws Exception {
+
+        String refreshToken = tokenUtil.obtainTokens(mockMvc, "maria@gmail.com", "123456").get("refresh_token").toString();
+        try {
+            jdbcTemplate.update("INSERT INTO tb_user_role (user_id, role_id) VALUES (1, 2)");
+
+            //Enquanto a entrada do cache user-details vale, o refresh ainda usa os perfis antigos
+            Map<String, Object> cached = tokenUtil.refreshTokens(mockMvc, refreshToken);
+            Assertions.assertEquals(List.of("ROLE_CLIENT"), authorities(cached));
+
+            evictUserDetails("maria@gmail.com");
+            Map<String, Object> refreshed = tokenUtil.refreshTokens(mockMvc, cached.get("refresh_token").toString());
+            Assertions.assertEquals(List.of("ROLE_CLIENT", "ROLE_ADMIN"), authorities(refreshed).stream().sorted(Comparator.reverseOrder()).toList());
+        } finally {
+            jdbcTemplate.update("DELETE FROM tb_user_role WHERE user_id = 1 AND role_id = 2");
+            evictUserDetails("maria@gmail.com");
+        }
+    }
+
+    @Test
+    public void refreshGrantShouldReturnInvalidGrantWhenUserWasRemoved() throws Exception {
+
+        String password = userRepository.searchPasswordByEmail("maria@gmail.com").orElseThrow();
+        jdbcTemplate.update("INSERT INTO tb_user (id, name, email, phone, password, birth_date) VALUES (100, 'Ana Removed', 'ana@gmail.com', '966666666', ?, '1990-01-01')", password);
+        jdbcTemplate.update("INSERT INTO tb_user_role (user_id, role_id) VALUES (100, 1)");
+        String refreshToken = tokenUtil.obtainTokens(mockMvc, "ana@gmail.com", "123456").get("refresh_token").toString();
+
+        jdbcTemplate.update("DELETE FROM tb_user_role WHERE user_id = 100");
+        jdbcTemplate.update("DELETE FROM tb_user WHERE id = 100");
+        evictUserDetails("ana@gmail.com");
+
+        expectInvalidGrant(refreshToken);
+    }
+
+    private void expectInvalidGrant(String refreshToken) throws Exception {
+
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("grant_type", "refresh_token");
+        params.add("refresh_token", refreshToken);
+
+        mockMvc.perform(post("/oauth2/token")
+                .params(params)
+                .with(httpBasic(clientId, clientSecret))
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("invalid_grant"));
+    }
+
+    private List<String> authorities(Map<String, Object> tokens) {
+        return jwtDecoder.decode(tokens.get("access_token").toString()).getClaimAsStringList("authorities");
+    }
+
+    //Simula a expiração da entrada (cache.user-details.ttl)
+    private void evictUserDetails(String username) {
+        cacheManager.getCache(CacheConfig.USER_DETAILS).evict(username);
+    }
+
+    private long count(String phase) {
+        Timer timer = meterRegistry.find("dscommerce.token.issuance").tag("phase", phase).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
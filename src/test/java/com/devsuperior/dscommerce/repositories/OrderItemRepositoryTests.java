@@ -0,0 +1,66 @@
+package com.devsuperior.dscommerce.repositories;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.TestPropertySource;
+
+import com.devsuperior.dscommerce.entities.Order;
+import com.devsuperior.dscommerce.entities.OrderItem;
+import com.devsuperior.dscommerce.entities.OrderStatus;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.entities.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class OrderItemRepositoryTests {
+
+	@Autowired
+	private OrderItemRepository repository;
+	
+	@Autowired
+	private TestEntityManager entityManager;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	private Statistics statistics;
+	private int itemCount;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		itemCount = 30;
+	}
+	
+	@Test
+	public void saveAllShouldInsertItemsInASingleBatchedStatement() {
+		
+		User client = entityManager.find(User.class, 1L);
+		Order order = entityManager.persist(new Order(null, Instant.now(), OrderStatus.WAITING_PAYMENT, client, null));
+		List<OrderItem> items = new ArrayList<>();
+		for (int i = 0; i < itemCount; i++) {
+			Product product = entityManager.persist(new Product(null, "Produto " + i, "Descrição do produto", 10.0, null));
+			items.add(new OrderItem(order, product, 1, product.getPrice()));
+		}
+		entityManager.flush();
+		statistics.clear();
+		
+		repository.saveAll(items);
+		entityManager.flush();
+		
+		Assertions.assertEquals(itemCount, statistics.getEntityInsertCount());
+		Assertions.assertEquals(1L, statistics.getPrepareStatementCount());
+	}
+}
@@ -0,0 +1,83 @@
+package com.devsuperior.dscommerce.repositories;
+
+import java.time.Instant;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.TestPropertySource;
+
+import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.entities.Order;
+import com.devsuperior.dscommerce.entities.OrderItem;
+import com.devsuperior.dscommerce.entities.OrderStatus;
+import com.devsuperior.dscommerce.entities.Payment;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.entities.User;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class OrderRepositoryTests {
+
+	@Autowired
+	private OrderRepository repository;
+	
+	@Autowired
+	private TestEntityManager entityManager;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	private Statistics statistics;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+	
+	@Test
+	public void searchWithItemsByIdShouldUseConstantStatementCountRegardlessOfItemCount() {
+		
+		Long smallOrderId = persistOrderWithItems(1);
+		Long largeOrderId = persistOrderWithItems(20);
+		
+		long smallOrderStatements = countStatementsToBuildDTO(smallOrderId, 1);
+		long largeOrderStatements = countStatementsToBuildDTO(largeOrderId, 20);
+		
+		Assertions.assertEquals(1L, smallOrderStatements);
+		Assertions.assertEquals(smallOrderStatements, largeOrderStatements);
+	}
+	
+	private long countStatementsToBuildDTO(Long orderId, int expectedItems) {
+		entityManager.clear();
+		statistics.clear();
+		
+		Order order = repository.searchWithItemsById(orderId).orElseThrow();
+		OrderDTO dto = new OrderDTO(order);
+		
+		Assertions.assertEquals(expectedItems, dto.getItems().size());
+		Assertions.assertNotNull(dto.getClient().getName());
+		Assertions.assertNotNull(dto.getPayment());
+		return statistics.getPrepareStatementCount();
+	}
+	
+	private Long persistOrderWithItems(int itemCount) {
+		User client = entityManager.find(User.class, 1L);
+		Order order = entityManager.persist(new Order(null, Instant.now(), OrderStatus.PAID, client, null));
+		entityManager.persist(new Payment(null, Instant.now(), order));
+		
+		for (int i = 0; i < itemCount; i++) {
+			Product product = entityManager.persist(new Product(null, "Produto " + i, "Descrição do produto", 10.0 + i, null));
+			entityManager.persist(new OrderItem(order, product, 1, product.getPrice()));
+		}
+		entityManager.flush();
+		return order.getId();
+	}
+}
@@ -0,0 +1,65 @@
+package com.devsuperior.dscommerce.repositories;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.TestPropertySource;
+
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.entities.Product;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class ProductRepositoryTests {
+
+	@Autowired
+	private ProductRepository repository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	public void searchByNameShouldReturnSortedProjectionWithoutLoadingEntities() {
+
+		Page<ProductMinDTO> result = repository.searchByName("", PageRequest.of(0, 12, Sort.by("name")));
+
+		Assertions.assertEquals(25L, result.getTotalElements());
+		Assertions.assertEquals(12, result.getNumberOfElements());
+		Assertions.assertEquals("Macbook Pro", result.getContent().get(0).getName());
+		Assertions.assertNotNull(result.getContent().get(0).getImgUrl());
+		Assertions.assertEquals(0L, statistics.getEntityLoadCount());
+	}
+
+	@Test
+	public void searchMinShouldApplySpecificationAndLimitWithoutLoadingEntities() {
+
+		Specification<Product> filter = (root, query, cb) -> cb.like(cb.upper(root.get("name")), "%PC GAMER%");
+
+		List<ProductMinDTO> result = repository.searchMin(filter, Sort.by(Sort.Direction.DESC, "id"), 3);
+
+		Assertions.assertEquals(3, result.size());
+		Assertions.assertTrue(result.get(0).getId() > result.get(1).getId());
+		Assertions.assertTrue(result.get(0).getName().startsWith("PC Gamer"));
+		Assertions.assertEquals(0L, statistics.getEntityLoadCount());
+	}
+}
@@ -1,5 +1,7 @@
 package com.devsuperior.dscommerce.services;
 
+import java.util.Optional;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,6 +14,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.services.exceptions.ForbiddenException;
 import com.devsuperior.dscommerce.tests.UserFactory;
+import com.devsuperior.dscommerce.util.CustomUserUtil;
 
 @ExtendWith(SpringExtension.class)
 public class AuthServiceTests {
@@ -22,6 +25,9 @@ public class AuthServiceTests {
 	@Mock
 	private UserService userService;
 	
+	@Mock
+	private CustomUserUtil userUtil;
+	
 	private User admin, selfClient, otherClient;
 	
 	@BeforeEach
@@ -34,7 +40,7 @@ public class AuthServiceTests {
 	@Test
 	public void validateSelfOrAdminShouldDoNothingWhenAdminLogged() {
 		
-		Mockito.when(userService.authenticated()).thenReturn(admin);
+		Mockito.when(userService.authenticated()).thenReturn(new AuthenticatedUser(admin));
 		
 		Long userId = admin.getId();
 		//Faz a chamada e verifica se não lança exceção
@@ -46,7 +52,7 @@ public class AuthServiceTests {
 	@Test
 	public void validateSelfOrAdminShouldDoNothingWhenSelfLogged() {
 		
-		Mockito.when(userService.authenticated()).thenReturn(selfClient);
+		Mockito.when(userService.authenticated()).thenReturn(new AuthenticatedUser(selfClient));
 		
 		Long userId = selfClient.getId();
 		
@@ -58,7 +64,7 @@ public class AuthServiceTests {
 	@Test
 	public void validateSelfOrAdminThrowsForbiddenExceptionWhenClientOtherLogged() {
 		
-		Mockito.when(userService.authenticated()).thenReturn(selfClient);
+		Mockito.when(userService.authenticated()).thenReturn(new AuthenticatedUser(selfClient));
 		
 		Long userId = otherClient.getId();
 		
@@ -66,5 +72,44 @@ public class AuthServiceTests {
 			service.validateSelfOrAdmin(userId);
 		});
 	}
-
+	
+	@Test
+	public void validateSelfOrAdminShouldNotLoadUserWhenAdminClaimsPresent() {
+		
+		Mockito.when(userUtil.getLoggedUserId()).thenReturn(Optional.of(admin.getId()));
+		Mockito.when(userUtil.loggedHasAuthority("ROLE_ADMIN")).thenReturn(true);
+		
+		Long userId = otherClient.getId();
+		
+		Assertions.assertDoesNotThrow(() -> {
+			service.validateSelfOrAdmin(userId);
+		});
+		Mockito.verify(userService, Mockito.never()).authenticated();
+	}
+	
+	@Test
+	public void validateSelfOrAdminShouldNotLoadUserWhenSelfClaimsPresent() {
+		
+		Mockito.when(userUtil.getLoggedUserId()).thenReturn(Optional.of(selfClient.getId()));
+		
+		Long userId = selfClient.getId();
+		
+		Assertions.assertDoesNotThrow(() -> {
+			service.validateSelfOrAdmin(userId);
+		});
+		Mockito.verify(userService, Mockito.never()).authenticated();
+	}
+	
+	@Test
+	public void validateSelfOrAdminThrowsForbiddenExceptionWhenOtherClientClaimsPresent() {
+		
+		Mockito.when(userUtil.getLoggedUserId()).thenReturn(Optional.of(selfClient.getId()));
+		
+		Long userId = otherClient.getId();
+		
+		Assertions.assertThrows(ForbiddenException.class, () -> {
+			service.validateSelfOrAdmin(userId);
+		});
+		Mockito.verify(userService, Mockito.never()).authenticated();
+	}
 }
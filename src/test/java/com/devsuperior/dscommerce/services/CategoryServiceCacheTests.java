@@ -0,0 +1,81 @@
+package com.devsuperior.dscommerce.services;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.devsuperior.dscommerce.config.CacheConfig;
+import com.devsuperior.dscommerce.dto.CategoryDTO;
+import com.devsuperior.dscommerce.dto.CategoryListDTO;
+import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.repositories.CategoryRepository;
+import com.devsuperior.dscommerce.tests.CacheTestProperties;
+import com.devsuperior.dscommerce.tests.CategoryFactory;
+
+@SpringJUnitConfig(classes = {CacheConfig.class, CategoryService.class})
+@CacheTestProperties
+public class CategoryServiceCacheTests {
+
+	@Autowired
+	private CategoryService service;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	@MockitoBean
+	private CategoryRepository repository;
+	
+	private Category category;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		category = CategoryFactory.createCategory();
+		
+		cacheManager.getCache(CacheConfig.CATEGORIES).clear();
+		
+		Mockito.when(repository.findAll()).thenReturn(List.of(category));
+	}
+	
+	@Test
+	public void findAllShouldHitRepositoryOnlyOnceForRepeatedReads() {
+		
+		CategoryListDTO first = service.findAll();
+		CategoryListDTO second = service.findAll();
+		
+		Assertions.assertSame(first, second);
+		Assertions.assertSame(first.getEtag(), second.getEtag());
+		Mockito.verify(repository, Mockito.times(1)).findAll();
+	}
+	
+	@Test
+	public void refreshShouldReplaceETagWhenListChanges() {
+		
+		String before = service.findAll().getEtag();
+		Mockito.when(repository.findAll()).thenReturn(List.of(category, new Category(2L, "Eletrônicos")));
+		
+		service.refresh();
+		
+		Assertions.assertNotEquals(before, service.findAll().getEtag());
+	}
+	
+	@Test
+	public void refreshShouldReplaceCachedList() {
+		
+		service.findAll();
+		Category other = new Category(2L, "Eletrônicos");
+		Mockito.when(repository.findAll()).thenReturn(List.of(category, other));
+		
+		service.refresh();
+		List<CategoryDTO> result = service.findAll().getCategories();
+		
+		Assertions.assertEquals(result.size(), 2);
+		Mockito.verify(repository, Mockito.times(2)).findAll();
+	}
+}
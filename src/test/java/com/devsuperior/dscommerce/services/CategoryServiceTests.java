@@ -42,7 +42,7 @@ public class CategoryServiceTests {
 	@Test
 	public void findAllShouldReturnListCategoryDTO() {
 		
-		List<CategoryDTO> result = service.findAll();
+		List<CategoryDTO> result = service.findAll().getCategories();
 		
 		Assertions.assertEquals(result.size(), 1);
 		Assertions.assertEquals(result.get(0).getId(), category.getId());
@@ -0,0 +1,271 @@
+package com.devsuperior.dscommerce.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.context.TestPropertySource;
+
+import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderItemDTO;
+import com.devsuperior.dscommerce.dto.StockAdjustmentDTO;
+import com.devsuperior.dscommerce.entities.StockLease;
+import com.devsuperior.dscommerce.entities.StockLeasePK;
+import com.devsuperior.dscommerce.repositories.StockLeaseRepository;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
+
+//O rebalance agendado fica desligado (PT1H) e é chamado pelos próprios testes.
+//Os pedidos criados, a cota e o estoque dos produtos são restaurados ao final.
+@SpringBootTest
+@TestPropertySource(properties = {
+		"inventory.hot-products=24",
+		"inventory.hot-allotment=20",
+		"inventory.hot-flush-interval=PT1H",
+		"spring.jpa.show-sql=false"})
+public class HotStockCountersIT {
+
+	private static final Long HOT_PRODUCT_ID = 24L;
+	private static final Long OTHER_PRODUCT_ID = 25L;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private HotStockCounters hotStockCounters;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private StockLeaseRepository leaseRepository;
+
+	private final ConcurrentLinkedQueue<Long> createdOrderIds = new ConcurrentLinkedQueue<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		hotStockCounters.returnAll();
+		jdbcTemplate.update("UPDATE tb_product SET stock = 30 WHERE id = ?", HOT_PRODUCT_ID);
+		hotStockCounters.rebalance();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		hotStockCounters.returnAll();
+		for (Long id : createdOrderIds) {
+			jdbcTemplate.update("DELETE FROM tb_order_item WHERE order_id = ?", id);
+			jdbcTemplate.update("DELETE FROM tb_order WHERE id = ?", id);
+		}
+		jdbcTemplate.update("UPDATE tb_product SET stock = 100 WHERE id IN (?, ?)", HOT_PRODUCT_ID, OTHER_PRODUCT_ID);
+	}
+
+	@Test
+	public void rebalanceShouldDebitAllotmentFromDatabase() {
+
+		Assertions.assertEquals(20L, hotStockCounters.available(HOT_PRODUCT_ID));
+		Assertions.assertEquals(10, stock(HOT_PRODUCT_ID));
+	}
+
+	@Test
+	public void rebalanceShouldRecordLeaseOfThisInstance() {
+
+		hotStockCounters.tryReserve(HOT_PRODUCT_ID, 5);
+		hotStockCounters.rebalance();
+
+		Assertions.assertEquals(15L, jdbcTemplate.queryForObject(
+				"SELECT quantity FROM tb_stock_lease WHERE product_id = ?", Long.class, HOT_PRODUCT_ID));
+
+		hotStockCounters.returnAll();
+		Assertions.assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tb_stock_lease", Integer.class));
+	}
+
+	@Test
+	public void concurrentRebalancesShouldDebitAllotmentOnlyOnce() throws Exception {
+
+		hotStockCounters.returnAll();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(hotStockCounters::rebalance));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		Assertions.assertEquals(20L, hotStockCounters.available(HOT_PRODUCT_ID));
+		Assertions.assertEquals(10, stock(HOT_PRODUCT_ID));
+	}
+
+	@Test
+	public void reclaimStaleLeasesShouldReturnUnitsNotSoldSinceLastRenewal() {
+
+		//Cota de uma instância que caiu há duas horas sem devolver as unidades
+		leaseRepository.save(new StockLease("crashed-instance", HOT_PRODUCT_ID, 7L, Instant.now().minus(Duration.ofHours(2))));
+		loginAsClient();
+		try {
+			createdOrderIds.add(orderService.insert(order(HOT_PRODUCT_ID, 2)).getId());
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+
+		Assertions.assertEquals(5L, hotStockCounters.reclaimStaleLeases());
+		Assertions.assertEquals(15, stock(HOT_PRODUCT_ID));
+		Assertions.assertFalse(leaseRepository.existsById(new StockLeasePK("crashed-instance", HOT_PRODUCT_ID)));
+		Assertions.assertEquals(0L, hotStockCounters.reclaimStaleLeases());
+	}
+
+	@Test
+	public void concurrentCheckoutsShouldSellExactlyTheStockAcrossMemoryAndDatabase() throws Exception {
+
+		AtomicInteger rejected = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				futures.add(executor.submit(() -> {
+					loginAsClient();
+					try {
+						createdOrderIds.add(orderService.insert(order(HOT_PRODUCT_ID, 1)).getId());
+					} catch (ConflictException e) {
+						rejected.incrementAndGet();
+					} finally {
+						SecurityContextHolder.clearContext();
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		//20 unidades pela cota em memória e as 10 restantes pelo UPDATE condicional
+		Assertions.assertEquals(30, createdOrderIds.size());
+		Assertions.assertEquals(20, rejected.get());
+		Assertions.assertEquals(0L, hotStockCounters.available(HOT_PRODUCT_ID));
+		Assertions.assertEquals(0, stock(HOT_PRODUCT_ID));
+	}
+
+	@Test
+	public void rolledBackOrderShouldReturnUnitsToAllotment() {
+
+		jdbcTemplate.update("UPDATE tb_product SET stock = 0 WHERE id = ?", OTHER_PRODUCT_ID);
+		OrderDTO dto = order(HOT_PRODUCT_ID, 5);
+		dto.getItems().add(new OrderItemDTO(OTHER_PRODUCT_ID, null, null, 1, null));
+
+		loginAsClient();
+		try {
+			Assertions.assertThrows(ConflictException.class, () -> {
+				orderService.insert(dto);
+			});
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+
+		Assertions.assertEquals(20L, hotStockCounters.available(HOT_PRODUCT_ID));
+		Assertions.assertEquals(10, stock(HOT_PRODUCT_ID));
+	}
+
+	@Test
+	public void cancelShouldReturnUnitsToAllotmentWithoutTouchingProductRow() {
+
+		loginAsClient();
+		try {
+			OrderDTO order = orderService.insert(order(HOT_PRODUCT_ID, 3));
+			createdOrderIds.add(order.getId());
+			Assertions.assertEquals(17L, hotStockCounters.available(HOT_PRODUCT_ID));
+
+			orderService.cancel(order.getId());
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+
+		Assertions.assertEquals(20L, hotStockCounters.available(HOT_PRODUCT_ID));
+		Assertions.assertEquals(10, stock(HOT_PRODUCT_ID));
+	}
+
+	@Test
+	public void rebalanceShouldReturnSurplusToDatabase() {
+
+		hotStockCounters.release(HOT_PRODUCT_ID, 30);
+
+		hotStockCounters.rebalance();
+
+		Assertions.assertEquals(20L, hotStockCounters.available(HOT_PRODUCT_ID));
+		Assertions.assertEquals(40, stock(HOT_PRODUCT_ID));
+	}
+
+	@Test
+	public void restockShouldGoToDatabaseAndLeaveAllotmentUntouched() {
+
+		productService.adjustStock(HOT_PRODUCT_ID, new StockAdjustmentDTO(5));
+
+		Assertions.assertEquals(20L, hotStockCounters.available(HOT_PRODUCT_ID));
+		Assertions.assertEquals(15, stock(HOT_PRODUCT_ID));
+	}
+
+	@Test
+	public void writeOffShouldTakeFromAllotmentWhenDatabaseDoesNotCover() {
+
+		//Banco com 10 e cota com 20: a baixa de 15 só cabe na cota
+		productService.adjustStock(HOT_PRODUCT_ID, new StockAdjustmentDTO(-15));
+
+		Assertions.assertEquals(5L, hotStockCounters.available(HOT_PRODUCT_ID));
+		Assertions.assertEquals(10, stock(HOT_PRODUCT_ID));
+	}
+
+	@Test
+	public void writeOffShouldThrowConflictAndKeepAllotmentWhenNeitherCovers() {
+
+		Assertions.assertThrows(ConflictException.class, () -> {
+			productService.adjustStock(HOT_PRODUCT_ID, new StockAdjustmentDTO(-25));
+		});
+
+		Assertions.assertEquals(20L, hotStockCounters.available(HOT_PRODUCT_ID));
+		Assertions.assertEquals(10, stock(HOT_PRODUCT_ID));
+	}
+
+	private OrderDTO order(Long productId, int quantity) {
+		OrderDTO dto = new OrderDTO(null, Instant.now(), null, null, null);
+		dto.getItems().add(new OrderItemDTO(productId, null, null, quantity, null));
+		return dto;
+	}
+
+	private Integer stock(Long productId) {
+		return jdbcTemplate.queryForObject("SELECT stock FROM tb_product WHERE id = ?", Integer.class, productId);
+	}
+
+	private static void loginAsClient() {
+		Jwt jwt = Jwt.withTokenValue("token")
+				.header("alg", "none")
+				.claim("username", "maria@gmail.com")
+				.claim("user_id", 1L)
+				.build();
+		SecurityContextHolder.getContext().setAuthentication(
+				new JwtAuthenticationToken(jwt, AuthorityUtils.createAuthorityList("ROLE_CLIENT")));
+	}
+}
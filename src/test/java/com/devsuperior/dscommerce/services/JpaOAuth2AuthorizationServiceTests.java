@@ -0,0 +1,195 @@
+package com.devsuperior.dscommerce.services;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.test.context.TestPropertySource;
+
+import com.devsuperior.dscommerce.config.customgrant.CustomUserAuthorities;
+import com.devsuperior.dscommerce.repositories.AuthorizationRepository;
+import com.devsuperior.dscommerce.util.TokenHash;
+
+@DataJpaTest
+@Import(AuthorizationPurgeJob.class)
+@TestPropertySource(properties = "security.authorization.purge-batch-size=2")
+public class JpaOAuth2AuthorizationServiceTests {
+
+	@Autowired
+	private AuthorizationRepository repository;
+	
+	@Autowired
+	private AuthorizationPurgeJob purgeJob;
+	
+	@Autowired
+	private TestEntityManager entityManager;
+	
+	private JpaOAuth2AuthorizationService service;
+	private RegisteredClient registeredClient;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		registeredClient = RegisteredClient.withId("client-registration-id")
+				.clientId("myclientid")
+				.clientSecret("{noop}secret")
+				.authorizationGrantType(new AuthorizationGrantType("password"))
+				.scope("read")
+				.build();
+		service = new JpaOAuth2AuthorizationService(repository, new InMemoryRegisteredClientRepository(registeredClient));
+	}
+	
+	@Test
+	public void findByTokenShouldReturnSavedAuthorizationWithUserDetails() {
+		
+		OAuth2Authorization authorization = authorization("access-1", "refresh-1", Instant.now().plusSeconds(3600));
+		service.save(authorization);
+		entityManager.flush();
+		entityManager.clear();
+		
+		OAuth2Authorization result = service.findByToken("access-1", OAuth2TokenType.ACCESS_TOKEN);
+		
+		Assertions.assertNotNull(result);
+		Assertions.assertEquals(authorization.getId(), result.getId());
+		Assertions.assertEquals("access-1", result.getAccessToken().getToken().getTokenValue());
+		Assertions.assertEquals(Set.of("read"), result.getAuthorizedScopes());
+		OAuth2ClientAuthenticationToken principal = result.getAttribute(Principal.class.getName());
+		CustomUserAuthorities user = (CustomUserAuthorities) principal.getDetails();
+		Assertions.assertEquals(1L, user.getUserId());
+		Assertions.assertEquals("maria@gmail.com", user.getUsername());
+		Assertions.assertEquals("ROLE_CLIENT", user.getAuthorities().iterator().next().getAuthority());
+	}
+	
+	@Test
+	public void findByTokenShouldResolveRefreshTokenWithOrWithoutType() {
+		
+		service.save(authorization("access-2", "refresh-2", Instant.now().plusSeconds(3600)));
+		entityManager.flush();
+		entityManager.clear();
+		
+		Assertions.assertNotNull(service.findByToken("refresh-2", OAuth2TokenType.REFRESH_TOKEN));
+		Assertions.assertNotNull(service.findByToken("refresh-2", null));
+		Assertions.assertNull(service.findByToken("refresh-2", OAuth2TokenType.ACCESS_TOKEN));
+	}
+	
+	@Test
+	public void saveShouldStoreOnlyRefreshTokenHashAndKeepItAcrossSaves() {
+		
+		OAuth2Authorization authorization = authorization("access-5", "refresh-5", Instant.now().plusSeconds(3600));
+		service.save(authorization);
+		entityManager.flush();
+		entityManager.clear();
+		
+		Assertions.assertEquals(TokenHash.sha256("refresh-5"), repository.findById(authorization.getId()).orElseThrow().getRefreshTokenHash());
+		
+		OAuth2Authorization byAccessToken = service.findByToken("access-5", OAuth2TokenType.ACCESS_TOKEN);
+		Assertions.assertNotEquals("refresh-5", byAccessToken.getRefreshToken().getToken().getTokenValue());
+		service.save(OAuth2Authorization.from(byAccessToken).invalidate(byAccessToken.getAccessToken().getToken()).build());
+		entityManager.flush();
+		entityManager.clear();
+		
+		OAuth2Authorization byRefreshToken = service.findByToken("refresh-5", OAuth2TokenType.REFRESH_TOKEN);
+		Assertions.assertNotNull(byRefreshToken);
+		Assertions.assertEquals("refresh-5", byRefreshToken.getRefreshToken().getToken().getTokenValue());
+		Assertions.assertTrue(byRefreshToken.getAccessToken().isInvalidated());
+	}
+	
+	@Test
+	public void saveShouldStoreOnlyAccessTokenHashAndKeepItAcrossSaves() {
+		
+		OAuth2Authorization authorization = authorization("access-6", "refresh-6", Instant.now().plusSeconds(3600));
+		service.save(authorization);
+		entityManager.flush();
+		entityManager.clear();
+		
+		Assertions.assertEquals(TokenHash.sha256("access-6"), repository.findById(authorization.getId()).orElseThrow().getAccessTokenHash());
+		
+		OAuth2Authorization byId = service.findById(authorization.getId());
+		Assertions.assertNotEquals("access-6", byId.getAccessToken().getToken().getTokenValue());
+		service.save(OAuth2Authorization.from(byId).invalidate(byId.getRefreshToken().getToken()).build());
+		entityManager.flush();
+		entityManager.clear();
+		
+		OAuth2Authorization byAccessToken = service.findByToken("access-6", OAuth2TokenType.ACCESS_TOKEN);
+		Assertions.assertNotNull(byAccessToken);
+		Assertions.assertEquals("access-6", byAccessToken.getAccessToken().getToken().getTokenValue());
+		Assertions.assertTrue(byAccessToken.getRefreshToken().isInvalidated());
+	}
+	
+	@Test
+	public void saveShouldPersistInvalidatedTokens() {
+		
+		OAuth2Authorization authorization = authorization("access-3", null, Instant.now().plusSeconds(3600));
+		service.save(authorization);
+		
+		OAuth2Authorization invalidated = OAuth2Authorization.from(authorization)
+				.invalidate(authorization.getAccessToken().getToken()).build();
+		service.save(invalidated);
+		entityManager.flush();
+		entityManager.clear();
+		
+		OAuth2Authorization result = service.findById(authorization.getId());
+		Assertions.assertTrue(result.getAccessToken().isInvalidated());
+	}
+	
+	@Test
+	public void removeShouldDeleteAuthorization() {
+		
+		OAuth2Authorization authorization = authorization("access-4", null, Instant.now().plusSeconds(3600));
+		service.save(authorization);
+		
+		service.remove(authorization);
+		
+		Assertions.assertNull(service.findById(authorization.getId()));
+	}
+	
+	@Test
+	public void purgeExpiredShouldDeleteOnlyExpiredAuthorizationsInBatches() {
+		
+		for (int i = 0; i < 5; i++) {
+			service.save(authorization("expired-" + i, null, Instant.now().minusSeconds(60)));
+		}
+		service.save(authorization("active", "active-refresh", Instant.now().plusSeconds(3600)));
+		
+		int purged = purgeJob.purgeExpired();
+		
+		Assertions.assertEquals(5, purged);
+		Assertions.assertEquals(1L, repository.count());
+		Assertions.assertNotNull(service.findByToken("active", OAuth2TokenType.ACCESS_TOKEN));
+	}
+	
+	private OAuth2Authorization authorization(String accessToken, String refreshToken, Instant expiresAt) {
+		Instant issuedAt = expiresAt.minusSeconds(3600);
+		OAuth2ClientAuthenticationToken principal = new OAuth2ClientAuthenticationToken(registeredClient,
+				ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+		principal.setDetails(new CustomUserAuthorities(1L, "maria@gmail.com", List.of(new SimpleGrantedAuthority("ROLE_CLIENT"))));
+		
+		OAuth2Authorization.Builder builder = OAuth2Authorization.withRegisteredClient(registeredClient)
+				.principalName(principal.getName())
+				.authorizationGrantType(new AuthorizationGrantType("password"))
+				.authorizedScopes(Set.of("read"))
+				.attribute(Principal.class.getName(), principal)
+				.accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, accessToken, issuedAt, expiresAt, Set.of("read")));
+		if (refreshToken != null) {
+			builder.refreshToken(new OAuth2RefreshToken(refreshToken, issuedAt, expiresAt));
+		}
+		return builder.build();
+	}
+}
@@ -1,6 +1,8 @@
 package com.devsuperior.dscommerce.services;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Assertions;
@@ -10,6 +12,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -17,19 +20,20 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import com.devsuperior.dscommerce.dto.OrderDTO;
 import com.devsuperior.dscommerce.entities.Order;
 import com.devsuperior.dscommerce.entities.OrderItem;
+import com.devsuperior.dscommerce.entities.OrderStatus;
 import com.devsuperior.dscommerce.entities.Product;
 import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.repositories.OrderItemRepository;
 import com.devsuperior.dscommerce.repositories.OrderRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.repositories.UserRepository;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
 import com.devsuperior.dscommerce.services.exceptions.ForbiddenException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
 import com.devsuperior.dscommerce.tests.OrderFactory;
 import com.devsuperior.dscommerce.tests.ProductFactory;
 import com.devsuperior.dscommerce.tests.UserFactory;
 
-import jakarta.persistence.EntityNotFoundException;
-
 @ExtendWith(SpringExtension.class)
 public class OrderServiceTests {
 	
@@ -48,9 +52,15 @@ public class OrderServiceTests {
 	@Mock
 	private OrderItemRepository orderItemRepository;
 	
+	@Mock
+	private UserRepository userRepository;
+	
 	@Mock
 	private UserService userService;
 	
+	@Mock
+	private HotStockCounters hotStockCounters;
+	
 	private Long existingOrderId, nonExistingOrderId;
 	private Long existingProductId, nonExistingProductId;
 	private Order order;
@@ -75,13 +85,21 @@ public class OrderServiceTests {
 		
 		product = ProductFactory.createProduct();
 		product.setId(existingProductId);
+		product.setStock(10);
 		
-		Mockito.when(repository.findById(existingOrderId)).thenReturn(Optional.of(order));
-		Mockito.when(repository.findById(nonExistingOrderId)).thenReturn(Optional.empty());
+		Mockito.when(repository.searchWithItemsById(existingOrderId)).thenReturn(Optional.of(order));
+		Mockito.when(repository.searchWithItemsById(nonExistingOrderId)).thenReturn(Optional.empty());
 		
-		Mockito.when(productRepository.getReferenceById(existingProductId)).thenReturn(product);
-		Mockito.when(productRepository.getReferenceById(nonExistingProductId)).thenThrow(EntityNotFoundException.class);
+		Mockito.when(productRepository.findAllById(any())).thenAnswer(invocation -> {
+			Collection<Long> ids = invocation.getArgument(0);
+			return ids.contains(existingProductId) ? List.of(product) : List.of();
+		});
 	
+		Mockito.when(productRepository.reserveStock(any(), any())).thenReturn(1);
+		
+		Mockito.when(userRepository.getReferenceById(admin.getId())).thenReturn(admin);
+		Mockito.when(userRepository.getReferenceById(client.getId())).thenReturn(client);
+		
 		Mockito.when(repository.save(any())).thenReturn(order);
 		
 		Mockito.when(orderItemRepository.saveAll(any())).thenReturn(new ArrayList<>(order.getItems()));
@@ -132,7 +150,7 @@ public class OrderServiceTests {
 	@Test
 	public void insertShouldReturnOrderDTOWhenAdminLogged() {
 		
-		Mockito.when(userService.authenticated()).thenReturn(admin);
+		Mockito.when(userService.authenticated()).thenReturn(new AuthenticatedUser(admin));
 		
 		OrderDTO result = service.insert(orderDTO);
 		
@@ -143,7 +161,7 @@ public class OrderServiceTests {
 	@Test
 	public void insertShouldReturnOrderDTOWhenClientLogged() {
 		
-		Mockito.when(userService.authenticated()).thenReturn(client);
+		Mockito.when(userService.authenticated()).thenReturn(new AuthenticatedUser(client));
 		
 		OrderDTO result = service.insert(orderDTO);
 		
@@ -166,20 +184,143 @@ public class OrderServiceTests {
 	}
 	
 	@Test
-	public void insertShouldThrowsEntityNotFoundExceptionWhenOrderProductIdDoesNotExist() {
+	public void insertShouldThrowsResourceNotFoundExceptionWhenOrderProductIdDoesNotExist() {
 		
-		Mockito.when(userService.authenticated()).thenReturn(client);
-		//Altera o id do produto para um id que não existe e inclui no pedido
-		product.setId(nonExistingOrderId);
-		OrderItem orderItem = new OrderItem(order, product, 2, 10.0);
+		Mockito.when(userService.authenticated()).thenReturn(new AuthenticatedUser(client));
+		//Cria um produto com id que não existe e inclui no pedido
+		Product nonExistingProduct = ProductFactory.createProduct();
+		nonExistingProduct.setId(nonExistingProductId);
+		OrderItem orderItem = new OrderItem(order, nonExistingProduct, 2, 10.0);
 		order.getItems().add(orderItem);
 		
 		orderDTO = new OrderDTO(order);
 		
-		Assertions.assertThrows(EntityNotFoundException.class, () -> {
+		Assertions.assertThrows(ResourceNotFoundException.class, () -> {
 			@SuppressWarnings("unused")
 			OrderDTO result = service.insert(orderDTO);
 		});
 	}
-
+	
+	@Test
+	public void insertShouldReserveStockOfEachProduct() {
+		
+		Mockito.when(userService.authenticated()).thenReturn(new AuthenticatedUser(client));
+		
+		service.insert(orderDTO);
+		
+		Mockito.verify(productRepository).reserveStock(existingProductId, 2);
+	}
+	
+	@Test
+	public void insertShouldThrowsConflictExceptionWhenStockIsInsufficient() {
+		
+		Mockito.when(userService.authenticated()).thenReturn(new AuthenticatedUser(client));
+		Mockito.when(productRepository.reserveStock(any(), any())).thenReturn(0);
+		
+		Assertions.assertThrows(ConflictException.class, () -> {
+			@SuppressWarnings("unused")
+			OrderDTO result = service.insert(orderDTO);
+		});
+	}
+	
+	@Test
+	public void insertShouldNotTryToReserveWhenLoadedStockIsAlreadyInsufficient() {
+		
+		Mockito.when(userService.authenticated()).thenReturn(new AuthenticatedUser(client));
+		product.setStock(1);
+		
+		Assertions.assertThrows(ConflictException.class, () -> {
+			@SuppressWarnings("unused")
+			OrderDTO result = service.insert(orderDTO);
+		});
+		Mockito.verify(productRepository, Mockito.never()).reserveStock(any(), any());
+	}
+	
+	@Test
+	public void cancelShouldReleaseStockWhenOrderIsCancelable() {
+		
+		Mockito.doNothing().when(authService).validateSelfOrAdmin(any());
+		Mockito.when(repository.updateStatus(ArgumentMatchers.eq(existingOrderId), ArgumentMatchers.eq(OrderStatus.CANCELED), any())).thenReturn(1);
+		
+		OrderDTO result = service.cancel(existingOrderId);
+		
+		Assertions.assertEquals(OrderStatus.CANCELED, result.getStatus());
+		Mockito.verify(productRepository).releaseStock(1L, 2);
+	}
+	
+	@Test
+	public void cancelShouldNotReleaseStockTwiceWhenOrderIsAlreadyCanceled() {
+		
+		Mockito.doNothing().when(authService).validateSelfOrAdmin(any());
+		order.setStatus(OrderStatus.CANCELED);
+		
+		OrderDTO result = service.cancel(existingOrderId);
+		
+		Assertions.assertEquals(OrderStatus.CANCELED, result.getStatus());
+		Mockito.verify(repository, Mockito.never()).updateStatus(any(), any(), any());
+		Mockito.verify(productRepository, Mockito.never()).releaseStock(any(), any());
+	}
+	
+	@Test
+	public void cancelShouldThrowsConflictExceptionWhenStatusChangedConcurrentlyOrIsNotCancelable() {
+		
+		Mockito.doNothing().when(authService).validateSelfOrAdmin(any());
+		Mockito.when(repository.updateStatus(any(), any(), any())).thenReturn(0);
+		Mockito.when(repository.searchStatusById(existingOrderId)).thenReturn(Optional.of(OrderStatus.DELIVERED));
+		
+		Assertions.assertThrows(ConflictException.class, () -> {
+			service.cancel(existingOrderId);
+		});
+		Mockito.verify(productRepository, Mockito.never()).releaseStock(any(), any());
+	}
+	
+	@Test
+	public void cancelShouldReturnOrderWhenConcurrentRequestCanceledItFirst() {
+		
+		Mockito.doNothing().when(authService).validateSelfOrAdmin(any());
+		Mockito.when(repository.updateStatus(any(), any(), any())).thenReturn(0);
+		Mockito.when(repository.searchStatusById(existingOrderId)).thenReturn(Optional.of(OrderStatus.CANCELED));
+		
+		OrderDTO result = service.cancel(existingOrderId);
+		
+		Assertions.assertEquals(OrderStatus.CANCELED, result.getStatus());
+		Mockito.verify(productRepository, Mockito.never()).releaseStock(any(), any());
+		Mockito.verify(hotStockCounters, Mockito.never()).release(ArgumentMatchers.anyLong(), ArgumentMatchers.anyInt());
+	}
+	
+	@Test
+	public void cancelShouldThrowsForbiddenExceptionWhenOtherClientLogged() {
+		
+		Mockito.doThrow(ForbiddenException.class).when(authService).validateSelfOrAdmin(any());
+		
+		Assertions.assertThrows(ForbiddenException.class, () -> {
+			service.cancel(existingOrderId);
+		});
+		Mockito.verify(repository, Mockito.never()).updateStatus(any(), any(), any());
+	}
+	
+	@Test
+	public void insertShouldNotTouchProductRowWhenHotStockAdmitsOrder() {
+		
+		Mockito.when(userService.authenticated()).thenReturn(new AuthenticatedUser(client));
+		Mockito.when(hotStockCounters.tryReserve(existingProductId, 2)).thenReturn(true);
+		product.setStock(0);
+		
+		OrderDTO result = service.insert(orderDTO);
+		
+		Assertions.assertNotNull(result);
+		Mockito.verify(productRepository, Mockito.never()).reserveStock(any(), any());
+	}
+	
+	@Test
+	public void cancelShouldReturnHotProductUnitsToMemoryAllotment() {
+		
+		Mockito.doNothing().when(authService).validateSelfOrAdmin(any());
+		Mockito.when(repository.updateStatus(any(), any(), any())).thenReturn(1);
+		Mockito.when(hotStockCounters.release(1L, 2)).thenReturn(true);
+		
+		service.cancel(existingOrderId);
+		
+		Mockito.verify(productRepository, Mockito.never()).releaseStock(any(), any());
+	}
 }
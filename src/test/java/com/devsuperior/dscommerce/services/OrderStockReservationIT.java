@@ -0,0 +1,158 @@
+package com.devsuperior.dscommerce.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderItemDTO;
+import com.devsuperior.dscommerce.entities.OrderStatus;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
+
+//Sem @Transactional: cada pedido commita na sua transação, como em produção.
+//Os pedidos criados e o estoque do produto são restaurados ao final.
+@SpringBootTest
+public class OrderStockReservationIT {
+
+	private static final Long PRODUCT_ID = 25L;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private Integer originalStock;
+	private final ConcurrentLinkedQueue<Long> createdOrderIds = new ConcurrentLinkedQueue<>();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		originalStock = stock();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		for (Long id : createdOrderIds) {
+			jdbcTemplate.update("DELETE FROM tb_order_item WHERE order_id = ?", id);
+			jdbcTemplate.update("DELETE FROM tb_order WHERE id = ?", id);
+		}
+		jdbcTemplate.update("UPDATE tb_product SET stock = ? WHERE id = ?", originalStock, PRODUCT_ID);
+	}
+
+	@Test
+	public void concurrentCheckoutsShouldNeverOversell() throws Exception {
+
+		jdbcTemplate.update("UPDATE tb_product SET stock = 10 WHERE id = ?", PRODUCT_ID);
+		AtomicInteger rejected = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 40; i++) {
+				futures.add(executor.submit(() -> {
+					loginAsClient();
+					try {
+						createdOrderIds.add(orderService.insert(order(1)).getId());
+					} catch (ConflictException e) {
+						rejected.incrementAndGet();
+					} finally {
+						SecurityContextHolder.clearContext();
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		Assertions.assertEquals(10, createdOrderIds.size());
+		Assertions.assertEquals(30, rejected.get());
+		Assertions.assertEquals(0, stock());
+	}
+
+	@Test
+	public void cancelShouldReturnReservedQuantityToStock() {
+
+		jdbcTemplate.update("UPDATE tb_product SET stock = 5 WHERE id = ?", PRODUCT_ID);
+		loginAsClient();
+		try {
+			OrderDTO order = orderService.insert(order(3));
+			createdOrderIds.add(order.getId());
+			Assertions.assertEquals(2, stock());
+
+			OrderDTO canceled = orderService.cancel(order.getId());
+
+			Assertions.assertEquals(OrderStatus.CANCELED, canceled.getStatus());
+			Assertions.assertEquals(5, stock());
+			orderService.cancel(order.getId());
+			Assertions.assertEquals(5, stock());
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+
+	@Test
+	public void entityUpdateShouldNotOverwriteStock() {
+
+		jdbcTemplate.update("UPDATE tb_product SET stock = 7 WHERE id = ?", PRODUCT_ID);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			Product product = productRepository.findById(PRODUCT_ID).orElseThrow();
+			productRepository.reserveStock(PRODUCT_ID, 2);
+			product.setPrice(product.getPrice() + 1.0);
+			product.setStock(100);
+			productRepository.flush();
+
+			Assertions.assertEquals(5, stock());
+			status.setRollbackOnly();
+		});
+	}
+
+	private OrderDTO order(int quantity) {
+		OrderDTO dto = new OrderDTO(null, Instant.now(), null, null, null);
+		dto.getItems().add(new OrderItemDTO(PRODUCT_ID, null, null, quantity, null));
+		return dto;
+	}
+
+	private Integer stock() {
+		return jdbcTemplate.queryForObject("SELECT stock FROM tb_product WHERE id = ?", Integer.class, PRODUCT_ID);
+	}
+
+	private static void loginAsClient() {
+		Jwt jwt = Jwt.withTokenValue("token")
+				.header("alg", "none")
+				.claim("username", "maria@gmail.com")
+				.claim("user_id", 1L)
+				.build();
+		SecurityContextHolder.getContext().setAuthentication(
+				new JwtAuthenticationToken(jwt, AuthorityUtils.createAuthorityList("ROLE_CLIENT")));
+	}
+}
@@ -0,0 +1,141 @@
+package com.devsuperior.dscommerce.services;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.devsuperior.dscommerce.projections.ProductNameProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+
+@ExtendWith(SpringExtension.class)
+public class ProductNameIndexTests {
+
+	@InjectMocks
+	private ProductNameIndex index;
+	
+	@Mock
+	private ProductRepository repository;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		List<ProductNameProjection> names = List.of(
+				projection(1L, "The Lord of the Rings"),
+				projection(3L, "Macbook Pro"),
+				projection(4L, "PC Gamer"),
+				projection(6L, "PC Gamer Ex"));
+		
+		Mockito.when(repository.searchAllNames()).thenReturn(names);
+		
+		index.rebuild();
+	}
+	
+	@Test
+	public void searchShouldReturnIdsContainingTermIgnoringCase() {
+		
+		Optional<Set<Long>> result = index.search("gamer");
+		
+		Assertions.assertTrue(result.isPresent());
+		Assertions.assertEquals(result.get(), Set.of(4L, 6L));
+	}
+	
+	@Test
+	public void searchShouldReturnEmptySetWhenNoNameContainsTerm() {
+		
+		Optional<Set<Long>> result = index.search("PlayStation");
+		
+		Assertions.assertTrue(result.isPresent());
+		Assertions.assertTrue(result.get().isEmpty());
+	}
+	
+	@Test
+	public void rebuildShouldPickUpProductsChangedOutsideThisInstance() {
+		
+		//Produto criado e produto renomeado por outra instância, sem passar pelo put/remove desta
+		Mockito.when(repository.searchAllNames()).thenReturn(List.of(
+				projection(1L, "The Lord of the Rings"),
+				projection(3L, "Macbook Air"),
+				projection(26L, "PlayStation 5")));
+		
+		index.rebuild();
+		
+		Assertions.assertEquals(Set.of(26L), index.search("PlayStation").get());
+		Assertions.assertEquals(Set.of(3L), index.search("Air").get());
+		Assertions.assertTrue(index.search("Macbook Pro").get().isEmpty());
+		Assertions.assertTrue(index.search("Gamer").get().isEmpty());
+	}
+	
+	@Test
+	public void searchShouldNotMatchWhenTrigramsAppearOutOfOrder() {
+		
+		//"PRO" e "MAC" existem em "Macbook Pro", mas não na sequência "PROMAC"
+		Optional<Set<Long>> result = index.search("promac");
+		
+		Assertions.assertTrue(result.get().isEmpty());
+	}
+	
+	@Test
+	public void searchShouldReturnEmptyOptionalWhenTermIsShorterThanTrigram() {
+		
+		Assertions.assertTrue(index.search("").isEmpty());
+		Assertions.assertTrue(index.search("PC").isEmpty());
+	}
+	
+	@Test
+	public void putShouldReindexWhenNameChanges() {
+		
+		index.put(3L, "Notebook Air");
+		
+		Assertions.assertTrue(index.search("Macbook").get().isEmpty());
+		Assertions.assertEquals(index.search("book").get(), Set.of(3L));
+	}
+	
+	@Test
+	public void removeShouldDropIdFromIndex() {
+		
+		index.remove(6L);
+		
+		Assertions.assertEquals(index.search("Gamer").get(), Set.of(4L));
+	}
+	
+	@Test
+	public void rebuildShouldKeepServingOldIndexAndKeepWritesMadeDuringLoad() {
+		
+		Mockito.when(repository.searchAllNames()).thenAnswer(invocation -> {
+			//Durante a carga a busca ainda responde pelo índice anterior
+			Assertions.assertEquals(index.search("Macbook").get(), Set.of(3L));
+			//Alteração commitada depois da leitura do banco, que ainda traz o nome antigo
+			index.put(3L, "Notebook Air");
+			return List.of(projection(1L, "The Lord of the Rings"), projection(3L, "Macbook Pro"));
+		});
+		
+		index.rebuild();
+		
+		Assertions.assertTrue(index.search("Macbook").get().isEmpty());
+		Assertions.assertEquals(index.search("book").get(), Set.of(3L));
+		Assertions.assertTrue(index.search("Gamer").get().isEmpty());
+	}
+	
+	private static ProductNameProjection projection(Long id, String name) {
+		return new ProductNameProjection() {
+			
+			@Override
+			public Long getId() {
+				return id;
+			}
+			
+			@Override
+			public String getName() {
+				return name;
+			}
+		};
+	}
+}
@@ -0,0 +1,103 @@
+package com.devsuperior.dscommerce.services;
+
+import static org.mockito.ArgumentMatchers.any;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.devsuperior.dscommerce.config.CacheConfig;
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.tests.CacheTestProperties;
+import com.devsuperior.dscommerce.tests.ProductFactory;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+@SpringJUnitConfig(classes = {CacheConfig.class, ProductService.class})
+@CacheTestProperties
+public class ProductServiceCacheTests {
+
+	@Autowired
+	private ProductService service;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	@MockitoBean
+	private ProductRepository repository;
+	
+	@MockitoBean
+	private ProductNameIndex nameIndex;
+	
+	@MockitoBean
+	private HotStockCounters hotStockCounters;
+	
+	private long existingProductId;
+	private Product product;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		existingProductId = 1L;
+		product = ProductFactory.createProduct();
+		
+		cacheManager.getCache(CacheConfig.PRODUCTS).clear();
+		
+		Mockito.when(repository.findById(existingProductId)).thenReturn(Optional.of(product));
+		Mockito.when(repository.getReferenceById(existingProductId)).thenReturn(product);
+		Mockito.when(repository.save(any())).thenReturn(product);
+		Mockito.when(repository.existsById(existingProductId)).thenReturn(true);
+	}
+	
+	@Test
+	public void findByIdShouldHitRepositoryOnlyOnceForRepeatedReads() {
+		
+		ProductDTO first = service.findById(existingProductId);
+		ProductDTO second = service.findById(existingProductId);
+		
+		Assertions.assertSame(first, second);
+		Mockito.verify(repository, Mockito.times(1)).findById(existingProductId);
+	}
+	
+	@Test
+	public void updateShouldEvictCachedProduct() {
+		
+		service.findById(existingProductId);
+		service.update(existingProductId, new ProductDTO(product));
+		service.findById(existingProductId);
+		
+		Mockito.verify(repository, Mockito.times(2)).findById(existingProductId);
+	}
+	
+	@Test
+	public void deleteShouldEvictCachedProduct() {
+		
+		service.findById(existingProductId);
+		service.delete(existingProductId);
+		service.findById(existingProductId);
+		
+		Mockito.verify(repository, Mockito.times(2)).findById(existingProductId);
+	}
+	
+	@Test
+	public void cacheShouldRecordHitAndMissCounters() {
+		
+		CaffeineCache cache = (CaffeineCache) cacheManager.getCache(CacheConfig.PRODUCTS);
+		CacheStats before = cache.getNativeCache().stats();
+		
+		service.findById(existingProductId);
+		service.findById(existingProductId);
+		
+		CacheStats after = cache.getNativeCache().stats().minus(before);
+		Assertions.assertEquals(after.missCount(), 1);
+		Assertions.assertEquals(after.hitCount(), 1);
+	}
+}
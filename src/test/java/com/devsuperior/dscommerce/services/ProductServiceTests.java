@@ -1,9 +1,12 @@
 package com.devsuperior.dscommerce.services;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,13 +20,21 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.devsuperior.dscommerce.dto.CursorPageDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.dto.StockAdjustmentDTO;
 import com.devsuperior.dscommerce.entities.Product;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
 import com.devsuperior.dscommerce.services.exceptions.DatabaseException;
+import com.devsuperior.dscommerce.services.exceptions.InvalidCursorException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
 import com.devsuperior.dscommerce.tests.ProductFactory;
 
@@ -38,11 +49,18 @@ public class ProductServiceTests {
 	@Mock
 	private ProductRepository repository;
 	
+	@Mock
+	private ProductNameIndex nameIndex;
+	
+	@Mock
+	private HotStockCounters hotStockCounters;
+	
 	private long existingProductId, nonExistingProductId, dependentProductId;
 	private String productName;
 	private Product product;
 	private ProductDTO productDTO;
-	private PageImpl<Product> page;
+	private PageImpl<ProductMinDTO> page;
+	private SliceImpl<ProductMinDTO> slice;
 	
 	@BeforeEach
 	void setUp() throws Exception {
@@ -54,12 +72,15 @@ public class ProductServiceTests {
 		
 		product = ProductFactory.createProduct(productName);
 		productDTO = new ProductDTO(product);
-		page = new PageImpl<>(List.of(product));
+		page = new PageImpl<>(List.of(new ProductMinDTO(product)));
+		slice = new SliceImpl<>(List.of(new ProductMinDTO(product)));
 		
 		Mockito.when(repository.findById(existingProductId)).thenReturn(Optional.of(product));
 		Mockito.when(repository.findById(nonExistingProductId)).thenReturn(Optional.empty());
 		
 		Mockito.when(repository.searchByName(any(), (Pageable)any())).thenReturn(page);
+		Mockito.when(repository.searchByIds(any(), (Pageable)any())).thenReturn(page);
+		Mockito.when(repository.searchSliceByName(any(), (Pageable)any())).thenReturn(slice);
 		
 		Mockito.when(repository.save(any())).thenReturn(product);
 		
@@ -104,6 +125,91 @@ public class ProductServiceTests {
 		Assertions.assertEquals(result.iterator().next().getName(), productName);
 	}
 	
+	@Test
+	public void findAllShouldSearchByIdsWhenNameIndexHasCandidates() {
+		
+		Pageable pageable = PageRequest.of(0, 12);
+		Mockito.when(nameIndex.search(productName)).thenReturn(Optional.of(Set.of(existingProductId)));
+		
+		Page<ProductMinDTO> result = service.findAll(productName, pageable);
+		
+		Assertions.assertEquals(result.getSize(), 1);
+		Mockito.verify(repository).searchByIds(Set.of(existingProductId), pageable);
+		Mockito.verify(repository, Mockito.never()).searchByName(any(), (Pageable)any());
+	}
+	
+	@Test
+	public void findAllShouldFallBackToNameQueryWhenNameIndexHasNoCandidates() {
+		
+		Pageable pageable = PageRequest.of(0, 12);
+		Mockito.when(nameIndex.search(productName)).thenReturn(Optional.of(Set.of()));
+		
+		Page<ProductMinDTO> result = service.findAll(productName, pageable);
+		
+		Assertions.assertEquals(result.getSize(), 1);
+		Mockito.verify(repository).searchByName(productName, pageable);
+		Mockito.verify(repository, Mockito.never()).searchByIds(any(), any());
+	}
+	
+	@Test
+	public void findAllSliceShouldReturnSliceWithoutCountQuery() {
+		
+		Pageable pageable = PageRequest.of(0, 12);
+		
+		Slice<ProductMinDTO> result = service.findAllSlice(productName, pageable);
+		
+		Assertions.assertEquals(result.getNumberOfElements(), 1);
+		Assertions.assertEquals(result.iterator().next().getName(), productName);
+		Mockito.verify(repository, Mockito.never()).searchByName(any(), (Pageable)any());
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void findAllAfterShouldReturnNextCursorWhenThereAreMoreRows() {
+		
+		Pageable pageable = PageRequest.of(0, 2, Sort.by("name"));
+		List<ProductMinDTO> rows = List.of(new ProductMinDTO(ProductFactory.createProduct("A")),
+				new ProductMinDTO(ProductFactory.createProduct("B")), new ProductMinDTO(ProductFactory.createProduct("C")));
+		Mockito.when(repository.searchMin(any(Specification.class), any(), Mockito.anyInt())).thenReturn(rows);
+		
+		CursorPageDTO<ProductMinDTO> result = service.findAllAfter("", "", pageable);
+		
+		Assertions.assertEquals(result.getContent().size(), 2);
+		Assertions.assertNotNull(result.getNext());
+		Assertions.assertFalse(result.isLast());
+		Assertions.assertDoesNotThrow(() -> service.findAllAfter("", result.getNext(), pageable));
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void findAllAfterShouldReturnLastPageWhenThereAreNoMoreRows() {
+		
+		Pageable pageable = PageRequest.of(0, 2);
+		Mockito.when(repository.searchMin(any(Specification.class), any(), Mockito.anyInt())).thenReturn(List.of(new ProductMinDTO(product)));
+		
+		CursorPageDTO<ProductMinDTO> result = service.findAllAfter("", "", pageable);
+		
+		Assertions.assertEquals(result.getContent().size(), 1);
+		Assertions.assertNull(result.getNext());
+		Mockito.verify(repository, Mockito.never()).searchByName(any(), (Pageable)any());
+	}
+	
+	@Test
+	public void findAllAfterShouldThrowInvalidCursorExceptionWhenTokenIsInvalid() {
+		
+		Assertions.assertThrows(InvalidCursorException.class, () -> {
+			service.findAllAfter("", "not-a-cursor", PageRequest.of(0, 2));
+		});
+	}
+	
+	@Test
+	public void findAllAfterShouldThrowInvalidCursorExceptionWhenSortIsNotSupported() {
+		
+		Assertions.assertThrows(InvalidCursorException.class, () -> {
+			service.findAllAfter("", "", PageRequest.of(0, 2, Sort.by("description")));
+		});
+	}
+	
 	@Test
 	public void insertShouldReturnProductDTO() {
 		
@@ -131,6 +237,47 @@ public class ProductServiceTests {
 		});
 	}
 	
+	@Test
+	public void adjustStockShouldUpdateDatabaseWhenStockCoversAdjustment() {
+		
+		Mockito.when(repository.adjustStock(existingProductId, -2)).thenReturn(1);
+		
+		service.adjustStock(existingProductId, new StockAdjustmentDTO(-2));
+		
+		Mockito.verify(hotStockCounters, Mockito.never()).tryReserve(anyLong(), anyInt());
+	}
+	
+	@Test
+	public void adjustStockShouldTakeWriteOffFromAllotmentWhenDatabaseDoesNotCover() {
+		
+		Mockito.when(repository.adjustStock(existingProductId, -2)).thenReturn(0);
+		Mockito.when(hotStockCounters.tryReserve(existingProductId, 2)).thenReturn(true);
+		
+		Assertions.assertDoesNotThrow(() -> {
+			service.adjustStock(existingProductId, new StockAdjustmentDTO(-2));
+		});
+	}
+	
+	@Test
+	public void adjustStockShouldThrowConflictExceptionWhenNeitherDatabaseNorAllotmentCover() {
+		
+		Mockito.when(repository.adjustStock(existingProductId, -2)).thenReturn(0);
+		Mockito.when(hotStockCounters.tryReserve(existingProductId, 2)).thenReturn(false);
+		
+		Assertions.assertThrows(ConflictException.class, () -> {
+			service.adjustStock(existingProductId, new StockAdjustmentDTO(-2));
+		});
+	}
+	
+	@Test
+	public void adjustStockShouldThrowResourceNotFoundExceptionWhenIdDoesNotExist() {
+		
+		Assertions.assertThrows(ResourceNotFoundException.class, () -> {
+			service.adjustStock(nonExistingProductId, new StockAdjustmentDTO(5));
+		});
+		Mockito.verify(repository, Mockito.never()).adjustStock(anyLong(), anyInt());
+	}
+	
 	@Test
 	public void deleteShouldDoNothingWhenIdExists() {
 		
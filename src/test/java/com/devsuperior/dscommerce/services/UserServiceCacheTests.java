@@ -0,0 +1,106 @@
+package com.devsuperior.dscommerce.services;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import com.devsuperior.dscommerce.config.CacheConfig;
+import com.devsuperior.dscommerce.repositories.UserRepository;
+import com.devsuperior.dscommerce.tests.CacheTestProperties;
+import com.devsuperior.dscommerce.tests.UserDetailsFactory;
+import com.devsuperior.dscommerce.util.CustomUserUtil;
+
+@SpringJUnitConfig(classes = {CacheConfig.class, UserService.class})
+@CacheTestProperties
+public class UserServiceCacheTests {
+
+	@Autowired
+	private UserService service;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	@MockitoBean
+	private UserRepository repository;
+	
+	@MockitoBean
+	private CustomUserUtil customUserUtil;
+	
+	private String existingUsername;
+	
+	@BeforeEach
+	void setUp() throws Exception {
+		existingUsername = "maria@gmail.com";
+		
+		cacheManager.getCache(CacheConfig.USER_DETAILS).clear();
+		
+		Mockito.when(repository.searchUserAndRolesByEmail(existingUsername))
+				.thenReturn(UserDetailsFactory.createCustomAdminClientUser(existingUsername));
+		Mockito.when(repository.searchPasswordByEmail(existingUsername)).thenReturn(Optional.of("123"));
+	}
+	
+	@Test
+	public void loadUserByUsernameShouldRunJoinOnlyOnceForRepeatedLogins() {
+		
+		UserDetails first = service.loadUserByUsername(existingUsername);
+		UserDetails second = service.loadUserByUsername(existingUsername);
+		
+		Assertions.assertEquals(first.getPassword(), "123");
+		Assertions.assertEquals(second.getPassword(), "123");
+		Assertions.assertEquals(second.getAuthorities().size(), 2);
+		Mockito.verify(repository, Mockito.times(1)).searchUserAndRolesByEmail(existingUsername);
+		Mockito.verify(repository, Mockito.times(1)).searchPasswordByEmail(existingUsername);
+	}
+	
+	@Test
+	public void loadUserByUsernameShouldNotKeepPasswordHashInCache() {
+		
+		service.loadUserByUsername(existingUsername);
+		
+		UserDetails cached = cacheManager.getCache(CacheConfig.USER_DETAILS).get(existingUsername, UserDetails.class);
+		Assertions.assertNotNull(cached);
+		Assertions.assertNull(cached.getPassword());
+	}
+	
+	@Test
+	public void loadUserAuthoritiesShouldReuseCacheWithoutReadingPassword() {
+		
+		service.loadUserByUsername(existingUsername);
+		UserDetails result = service.loadUserAuthorities(existingUsername);
+		
+		Assertions.assertEquals(result.getAuthorities().size(), 2);
+		Assertions.assertNull(result.getPassword());
+		Mockito.verify(repository, Mockito.times(1)).searchUserAndRolesByEmail(existingUsername);
+		Mockito.verify(repository, Mockito.never()).searchPasswordByEmail(existingUsername);
+	}
+	
+	@Test
+	public void loadUserAuthoritiesShouldNotReturnSharedCacheEntry() {
+		
+		UserDetails result = service.loadUserAuthorities(existingUsername);
+		
+		UserDetails cached = cacheManager.getCache(CacheConfig.USER_DETAILS).get(existingUsername, UserDetails.class);
+		Assertions.assertNotSame(cached, result);
+		Assertions.assertNotSame(result, service.loadUserAuthorities(existingUsername));
+	}
+	
+	@Test
+	public void updatePasswordShouldStoreNewHashAndForceReloadOnNextLogin() {
+		
+		UserDetails user = service.loadUserByUsername(existingUsername);
+		UserDetails result = service.updatePassword(user, "{bcrypt}new-hash");
+		service.loadUserByUsername(existingUsername);
+		
+		Assertions.assertEquals(result.getPassword(), "{bcrypt}new-hash");
+		Mockito.verify(repository).updatePassword(existingUsername, "{bcrypt}new-hash");
+		Mockito.verify(repository, Mockito.times(2)).searchUserAndRolesByEmail(existingUsername);
+	}
+}
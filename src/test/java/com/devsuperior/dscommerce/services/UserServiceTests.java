@@ -3,6 +3,8 @@ package com.devsuperior.dscommerce.services;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,18 +13,28 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import com.devsuperior.dscommerce.config.CacheConfig;
 import com.devsuperior.dscommerce.dto.UserDTO;
+import com.devsuperior.dscommerce.entities.Role;
 import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.projections.UserDetailsProjection;
 import com.devsuperior.dscommerce.repositories.UserRepository;
+import com.devsuperior.dscommerce.tests.PinningRecorder;
 import com.devsuperior.dscommerce.tests.UserDetailsFactory;
 import com.devsuperior.dscommerce.tests.UserFactory;
 import com.devsuperior.dscommerce.util.CustomUserUtil;
 
+import jdk.jfr.consumer.RecordedEvent;
+
 @ExtendWith(SpringExtension.class)
 public class UserServiceTests {
 	
@@ -35,6 +47,9 @@ public class UserServiceTests {
 	@Mock
 	private CustomUserUtil userUtil;
 	
+	@Mock
+	private CacheManager cacheManager;
+	
 	private String existingUsername, nonExistingUsername;
 	private User user;
 	private List<UserDetailsProjection> userDetails;
@@ -53,6 +68,9 @@ public class UserServiceTests {
 	
 		Mockito.when(repository.findByEmail(existingUsername)).thenReturn(Optional.of(user));
 		Mockito.when(repository.findByEmail(nonExistingUsername)).thenReturn(Optional.empty());
+		
+		Mockito.when(cacheManager.getCache(CacheConfig.USERS)).thenReturn(new ConcurrentMapCache(CacheConfig.USERS));
+		Mockito.when(cacheManager.getCache(CacheConfig.USER_DETAILS)).thenReturn(new ConcurrentMapCache(CacheConfig.USER_DETAILS));
 	}
 	
 	@Test
@@ -62,6 +80,7 @@ public class UserServiceTests {
 		
 		Assertions.assertNotNull(result);
 		Assertions.assertEquals(result.getUsername(), existingUsername);
+		Assertions.assertEquals(((User) result).getId(), 1L);
 	}
 	
 	@Test
@@ -78,10 +97,12 @@ public class UserServiceTests {
 		// Mocking the getLoggedUsername method
 		Mockito.when(userUtil.getLoggedUsername()).thenReturn(existingUsername);
 		
-		User result = service.authenticated();
+		AuthenticatedUser result = service.authenticated();
 		
 		Assertions.assertNotNull(result);
-		Assertions.assertEquals(result.getUsername(), existingUsername);
+		Assertions.assertEquals(result.getEmail(), existingUsername);
+		Assertions.assertEquals(result.getId(), 1L);
+		Assertions.assertTrue(result.hasRole("ROLE_CLIENT"));
 	}
 	
 	@Test
@@ -94,16 +115,80 @@ public class UserServiceTests {
 		});
 	}
 	
+	@Test
+	public void authenticatedShouldNotPinCarrierThreadWhileLoadingUser() throws Throwable {
+		
+		Mockito.when(userUtil.getLoggedUsername()).thenReturn(existingUsername);
+		//Simula a espera de I/O de um banco remoto: a thread virtual estaciona durante a consulta
+		Mockito.when(repository.findByEmail(existingUsername)).thenAnswer(invocation -> {
+			Thread.sleep(20);
+			return Optional.of(user);
+		});
+		
+		List<RecordedEvent> pinned = PinningRecorder.pinnedDuring(() -> {
+			try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+				executor.submit(() -> service.authenticated()).get();
+			}
+		});
+		
+		Assertions.assertTrue(pinned.isEmpty(), PinningRecorder.describe(pinned));
+	}
+	
+	@Test
+	public void authenticatedShouldQueryRepositoryOnlyOnceForRepeatedCalls() {
+		
+		Mockito.when(userUtil.getLoggedUsername()).thenReturn(existingUsername);
+		
+		service.authenticated();
+		service.authenticated();
+		
+		Mockito.verify(repository, Mockito.times(1)).findByEmail(existingUsername);
+	}
+	
+	@Test
+	public void authenticatedShouldReuseUserWithinSameRequest() {
+		
+		Mockito.when(userUtil.getLoggedUsername()).thenReturn(existingUsername);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+		try {
+			AuthenticatedUser first = service.authenticated();
+			AuthenticatedUser second = service.authenticated();
+			
+			Assertions.assertSame(first, second);
+			Mockito.verify(cacheManager, Mockito.times(1)).getCache(CacheConfig.USERS);
+		}
+		finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+	}
+	
+	@Test
+	public void authenticatedShouldCacheImmutableSnapshotInsteadOfEntity() {
+		
+		Mockito.when(userUtil.getLoggedUsername()).thenReturn(existingUsername);
+		
+		service.authenticated();
+		user.addRole(new Role(2L, "ROLE_ADMIN"));
+		AuthenticatedUser cached = service.authenticated();
+		
+		Assertions.assertFalse(cached.hasRole("ROLE_ADMIN"));
+		Assertions.assertThrows(UnsupportedOperationException.class, () -> {
+			cached.getRoles().add("ROLE_ADMIN");
+		});
+	}
+	
 	@Test
 	public void getMeShouldReturnUserDTOWhenUserAuthenticated() {
 	
 		UserService spyUserService = Mockito.spy(service);
-		Mockito.doReturn(user).when(spyUserService).authenticated();
+		Mockito.doReturn(new AuthenticatedUser(user)).when(spyUserService).authenticated();
+		Mockito.when(repository.findById(1L)).thenReturn(Optional.of(user));
 		
 		UserDTO result = spyUserService.getMe();
 		
 		Assertions.assertNotNull(result);
-		Assertions.assertEquals(result.getEmail(), existingUsername);		
+		Assertions.assertEquals(result.getEmail(), existingUsername);
+		Assertions.assertEquals(result.getName(), user.getName());
 	}
 	
 	@Test
@@ -0,0 +1,17 @@
+package com.devsuperior.dscommerce.tests;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.test.context.TestPropertySource;
+
+//Propriedades exigidas pelo CacheConfig nos testes que sobem só o CacheConfig e o serviço testado
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@TestPropertySource(properties = {"cache.products.max-size=100", "cache.products.ttl=600", "cache.categories.ttl=600",
+		"cache.users.max-size=100", "cache.users.ttl=30",
+		"cache.user-details.max-size=100", "cache.user-details.ttl=300"})
+public @interface CacheTestProperties {
+}
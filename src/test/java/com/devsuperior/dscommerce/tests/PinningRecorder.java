@@ -0,0 +1,41 @@
+package com.devsuperior.dscommerce.tests;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.function.Executable;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+//Grava, via JFR, os eventos jdk.VirtualThreadPinned (limiar zero) ocorridos durante a carga:
+//uma thread virtual que bloqueia dentro de synchronized (ou de código nativo) prende a carrier thread.
+public class PinningRecorder {
+
+	public static List<RecordedEvent> pinnedDuring(Executable workload) throws Throwable {
+		Path file = Files.createTempFile("pinning", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+			recording.start();
+			workload.execute();
+			recording.stop();
+			recording.dump(file);
+			return RecordingFile.readAllEvents(file);
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	public static String describe(List<RecordedEvent> events) {
+		return events.stream()
+				.map(event -> event.getStackTrace().getFrames().stream()
+						.map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber())
+						.collect(Collectors.joining("\n  ", "pinned:\n  ", "")))
+				.collect(Collectors.joining("\n"));
+	}
+}